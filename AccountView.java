@@ -0,0 +1,81 @@
+package com.changyo.core;
+
+import com.changyo.core.config.Parameter.ChainConstant;
+import com.changyo.protos.Protocol.Account;
+
+/**
+ * Read-only projection of an account for the wallet query API.
+ *
+ * <p>Computes the same time-decayed bandwidth and energy usage that GasProcessor and
+ * EnergyProcessor write in updateUsage, but on a copy of the proto, so no processor is
+ * allocated and the stored capsule is never touched.</p>
+ */
+public final class AccountView {
+
+  private static final long PRECISION = ChainConstant.PRECISION;
+  private static final long WINDOW_SIZE =
+      ChainConstant.WINDOW_SIZE_MS / ChainConstant.BLOCK_PRODUCED_INTERVAL;
+
+  private AccountView() {
+  }
+
+  /**
+   * Returns a builder holding the account with every usage decayed to the given slot.
+   */
+  public static Account.Builder decayUsage(Account account, long now,
+      boolean allowSameTokenName) {
+    Account.Builder builder = account.toBuilder()
+        .setNetUsage(decay(account.getNetUsage(), account.getLatestConsumeTime(), now))
+        .setFreeGasUsage(
+            decay(account.getFreeGasUsage(), account.getLatestConsumeFreeTime(), now));
+
+    if (!allowSameTokenName) {
+      account.getAssetMap().keySet().forEach(assetName -> builder.putFreeAssetNetUsage(assetName,
+          decay(account.getFreeAssetNetUsageOrDefault(assetName, 0),
+              account.getLatestAssetOperationTimeOrDefault(assetName, 0), now)));
+    }
+    account.getAssetV2Map().keySet().forEach(assetName -> builder.putFreeAssetNetUsageV2(
+        assetName, decay(account.getFreeAssetNetUsageV2OrDefault(assetName, 0),
+            account.getLatestAssetOperationTimeV2OrDefault(assetName, 0), now)));
+
+    Account.AccountResource resource = account.getAccountResource();
+    builder.getAccountResourceBuilder().setEnergyUsage(
+        decay(resource.getEnergyUsage(), resource.getLatestConsumeTimeForEnergy(), now));
+    return builder;
+  }
+
+  /**
+   * Converts the latest consume slots of the builder into millisecond timestamps.
+   */
+  public static Account.Builder toAbsoluteTime(Account.Builder builder, long genesisTimeStamp) {
+    builder.setLatestConsumeTime(genesisTimeStamp
+        + ChainConstant.BLOCK_PRODUCED_INTERVAL * builder.getLatestConsumeTime());
+    builder.setLatestConsumeFreeTime(genesisTimeStamp
+        + ChainConstant.BLOCK_PRODUCED_INTERVAL * builder.getLatestConsumeFreeTime());
+    Account.AccountResource.Builder resource = builder.getAccountResourceBuilder();
+    resource.setLatestConsumeTimeForEnergy(genesisTimeStamp
+        + ChainConstant.BLOCK_PRODUCED_INTERVAL * resource.getLatestConsumeTimeForEnergy());
+    return builder;
+  }
+
+  /**
+   * Same as ResourceProcessor.increase(lastUsage, 0, lastTime, now).
+   */
+  static long decay(long lastUsage, long lastTime, long now) {
+    long averageLastUsage = divideCeil(lastUsage * PRECISION, WINDOW_SIZE);
+    if (lastTime != now) {
+      if (lastTime + WINDOW_SIZE > now) {
+        long delta = now - lastTime;
+        double decay = (WINDOW_SIZE - delta) / (double) WINDOW_SIZE;
+        averageLastUsage = Math.round(averageLastUsage * decay);
+      } else {
+        averageLastUsage = 0;
+      }
+    }
+    return averageLastUsage * WINDOW_SIZE / PRECISION;
+  }
+
+  private static long divideCeil(long numerator, long denominator) {
+    return (numerator / denominator) + ((numerator % denominator) > 0 ? 1 : 0);
+  }
+}
@@ -1,6 +1,7 @@
 package com.changyo.core.actuator;
 
 import com.changyo.core.capsule.TransactionCapsule;
+import com.changyo.core.db.AssetIssueOwnerIndexStore;
 import com.changyo.core.db.Manager;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
@@ -14,6 +15,8 @@ public class ActuatorFactory {
 
   public static final ActuatorFactory INSTANCE = new ActuatorFactory();
 
+  private static volatile AssetIssueOwnerIndexStore assetIssueOwnerIndexStore;
+
   private ActuatorFactory() {
   }
 
@@ -21,6 +24,13 @@ public class ActuatorFactory {
     return INSTANCE;
   }
 
+  /**
+   * Sets the owner index that every executed AssetIssueContract is recorded in.
+   */
+  public static void setAssetIssueOwnerIndexStore(AssetIssueOwnerIndexStore indexStore) {
+    assetIssueOwnerIndexStore = indexStore;
+  }
+
   /**
    * create actuator.
    */
@@ -56,7 +66,10 @@ public class ActuatorFactory {
       case AccountCreateContract:
         return new CreateAccountActuator(contract.getParameter(), manager);
       case AssetIssueContract:
-        return new AssetIssueActuator(contract.getParameter(), manager);
+        Actuator assetIssueActuator = new AssetIssueActuator(contract.getParameter(), manager);
+        AssetIssueOwnerIndexStore indexStore = assetIssueOwnerIndexStore;
+        return indexStore == null ? assetIssueActuator
+            : new AssetIssueOwnerIndexActuator(assetIssueActuator, manager, indexStore);
       case UnfreezeAssetContract:
         return new UnfreezeAssetActuator(contract.getParameter(), manager);
       case WitnessUpdateContract:
@@ -105,6 +105,30 @@ public class Args {
   @Parameter(names = {"--long-running-time"})
   private int longRunningTime = 10;
 
+  @Getter
+  @Setter
+  private int constantCallThreadNum;
+
+  @Getter
+  @Setter
+  private int constantCallQueueSize;
+
+  @Getter
+  @Setter
+  private long constantCallTimeoutInMs;
+
+  @Getter
+  @Setter
+  private long precompileCacheSize = 4096;
+
+  @Getter
+  @Setter
+  private boolean profilePrecompiles;
+
+  @Getter
+  @Setter
+  private int profilePrecompilesSampleInterval;
+
   @Getter
   @Parameter(description = "--seed-nodes")
   private List<String> seedNodes = new ArrayList<>();
@@ -142,6 +166,10 @@ public class Args {
       "--storage-transactionHistory-switch"}, description = "Storage transaction history switch.(on or off)")
   private String storageTransactionHistoreSwitch = "";
 
+  @Getter
+  @Setter
+  private boolean blockStatIndexBackfill;
+
   @Getter
   @Parameter(names = {"--fast-forward"})
   private boolean fastForward = false;
@@ -267,6 +295,10 @@ public class Args {
   @Setter
   private int solidityHttpPort;
 
+  @Getter
+  @Setter
+  private long blockStreamLimit;
+
   @Getter
   @Setter
   @Parameter(names = {"--rpc-thread"}, description = "Num of gRPC thread")
@@ -648,6 +680,25 @@ public class Args {
       INSTANCE.longRunningTime = config.getInt("vm.longRunningTime");
     }
 
+    INSTANCE.constantCallThreadNum = config.hasPath("vm.constantCallThreadNum") ? config
+        .getInt("vm.constantCallThreadNum") : Runtime.getRuntime().availableProcessors();
+
+    INSTANCE.constantCallQueueSize = config.hasPath("vm.constantCallQueueSize") ? config
+        .getInt("vm.constantCallQueueSize") : 1000;
+
+    INSTANCE.constantCallTimeoutInMs = config.hasPath("vm.constantCallTimeoutInMs") ? config
+        .getLong("vm.constantCallTimeoutInMs") : 1000L;
+
+    INSTANCE.precompileCacheSize = config.hasPath("vm.precompileCacheSize") ? config
+        .getLong("vm.precompileCacheSize") : 4096L;
+
+    INSTANCE.profilePrecompiles =
+        config.hasPath("vm.profilePrecompiles") && config.getBoolean("vm.profilePrecompiles");
+
+    INSTANCE.profilePrecompilesSampleInterval =
+        config.hasPath("vm.profilePrecompilesSampleInterval") ? config
+            .getInt("vm.profilePrecompilesSampleInterval") : 1;
+
     INSTANCE.storage = new Storage();
     INSTANCE.storage.setDbVersion(Optional.ofNullable(INSTANCE.storageDbVersion)
         .filter(StringUtils::isNotEmpty)
@@ -687,6 +738,9 @@ public class Args {
 
     INSTANCE.storage.setPropertyMapFromConfig(config);
 
+    INSTANCE.blockStatIndexBackfill = !config.hasPath("storage.blockStatIndex.backfill")
+        || config.getBoolean("storage.blockStatIndex.backfill");
+
     INSTANCE.seedNode = new SeedNode();
     INSTANCE.seedNode.setIpList(Optional.ofNullable(INSTANCE.seedNodes)
         .filter(seedNode -> 0 != seedNode.size())
@@ -774,6 +828,10 @@ public class Args {
     INSTANCE.solidityHttpPort =
         config.hasPath("node.http.solidityPort") ? config.getInt("node.http.solidityPort") : 8091;
 
+    INSTANCE.blockStreamLimit =
+        config.hasPath("node.http.blockStreamLimit") ? config.getLong("node.http.blockStreamLimit")
+            : 100;
+
     INSTANCE.rpcThreadNum =
         config.hasPath("node.rpc.thread") ? config.getInt("node.rpc.thread")
             : Runtime.getRuntime().availableProcessors() / 2;
@@ -0,0 +1,98 @@
+package com.changyo.core.db;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.core.actuator.ActuatorFactory;
+import com.changyo.core.capsule.AssetIssueCapsule;
+import com.changyo.core.capsule.AssetIssueOwnerIndexCapsule;
+
+/**
+ * Looks up the assets issued by one owner through {@link AssetIssueOwnerIndexStore}.
+ *
+ * <p>The index is filled once from the existing asset stores by a migration at startup, guarded
+ * by ASSET_ISSUE_OWNER_INDEX_DONE, and afterwards by {@code AssetIssueOwnerIndexActuator} for
+ * every executed AssetIssueContract. Until the migration has finished, lookups fall back to a
+ * full scan. Every asset returned is read from the store getAssetIssueStoreFinal() selects and
+ * its owner checked again.</p>
+ */
+@Slf4j(topic = "DB")
+@Component
+public class AssetIssueOwnerIndex {
+
+  @Autowired
+  private Manager dbManager;
+
+  @Autowired
+  private AssetIssueOwnerIndexStore indexStore;
+
+  @PostConstruct
+  public void init() {
+    ActuatorFactory.setAssetIssueOwnerIndexStore(indexStore);
+    if (dbManager.getDynamicPropertiesStore().getAssetIssueOwnerIndexDone() == 1) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    logger.info("Start to build the asset issue owner index");
+    long count = 0;
+    // v1 first: with allowSameTokenName == 0 an asset may exist only under its name
+    for (AssetIssueCapsule assetIssueCapsule
+        : dbManager.getAssetIssueStore().getAllAssetIssues()) {
+      indexStore.add(assetIssueCapsule);
+      count++;
+    }
+    for (AssetIssueCapsule assetIssueCapsule
+        : dbManager.getAssetIssueV2Store().getAllAssetIssues()) {
+      indexStore.add(assetIssueCapsule);
+      count++;
+    }
+    dbManager.getDynamicPropertiesStore().saveAssetIssueOwnerIndexDone(1);
+    logger.info("Complete the asset issue owner index, {} assets, cost: {} ms", count,
+        System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Returns the assets issued by owner, from the store getAssetIssueStoreFinal() selects, in
+   * the key order of that store.
+   */
+  public List<AssetIssueCapsule> getByOwner(ByteString owner) {
+    boolean byName = dbManager.getDynamicPropertiesStore().getAllowSameTokenName() == 0;
+    if (dbManager.getDynamicPropertiesStore().getAssetIssueOwnerIndexDone() != 1) {
+      return dbManager.getAssetIssueStoreFinal().getAllAssetIssues().stream()
+          .filter(asset -> asset.getOwnerAddress().equals(owner))
+          .collect(Collectors.toList());
+    }
+
+    AssetIssueOwnerIndexCapsule indexCapsule = indexStore.get(owner.toByteArray());
+    if (indexCapsule == null) {
+      return new ArrayList<>();
+    }
+    List<AssetIssueCapsule> assets = new ArrayList<>(indexCapsule.getAssetIdsList().size());
+    for (int i = 0; i < indexCapsule.getAssetIdsList().size(); i++) {
+      ByteString id = indexCapsule.getAssetIdsList().get(i);
+      AssetIssueCapsule asset;
+      if (byName) {
+        asset = dbManager.getAssetIssueStore()
+            .get(indexCapsule.getAssetNamesList().get(i).toByteArray());
+      } else {
+        asset = id.isEmpty() ? null : dbManager.getAssetIssueV2Store().get(id.toByteArray());
+      }
+      if (asset != null && asset.getOwnerAddress().equals(owner)
+          && assets.stream().noneMatch(a -> a.getId().equals(asset.getId())
+          && a.getName().equals(asset.getName()))) {
+        assets.add(asset);
+      }
+    }
+    assets.sort((a, b) -> UnsignedBytes.lexicographicalComparator().compare(
+        byName ? a.createDbKey() : a.createDbV2Key(),
+        byName ? b.createDbKey() : b.createDbV2Key()));
+    return assets;
+  }
+}
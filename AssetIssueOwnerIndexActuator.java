@@ -0,0 +1,63 @@
+package com.changyo.core.actuator;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.extern.slf4j.Slf4j;
+import com.changyo.common.utils.ByteArray;
+import com.changyo.core.capsule.AssetIssueCapsule;
+import com.changyo.core.capsule.TransactionResultCapsule;
+import com.changyo.core.db.AssetIssueOwnerIndexStore;
+import com.changyo.core.db.Manager;
+import com.changyo.core.exception.ContractExeException;
+import com.changyo.core.exception.ContractValidateException;
+
+/**
+ * Wraps the AssetIssueContract actuator and records the new asset in the owner index after it
+ * has executed. The write happens inside the revoking session of the block, so a fork switch
+ * undoes it together with the asset.
+ */
+@Slf4j(topic = "actuator")
+public class AssetIssueOwnerIndexActuator implements Actuator {
+
+  private final Actuator actuator;
+  private final Manager dbManager;
+  private final AssetIssueOwnerIndexStore indexStore;
+
+  AssetIssueOwnerIndexActuator(Actuator actuator, Manager dbManager,
+      AssetIssueOwnerIndexStore indexStore) {
+    this.actuator = actuator;
+    this.dbManager = dbManager;
+    this.indexStore = indexStore;
+  }
+
+  @Override
+  public boolean execute(TransactionResultCapsule ret) throws ContractExeException {
+    boolean result = actuator.execute(ret);
+    // the asset issue actuator stores the new asset in the v2 store under the id it has just
+    // taken from TOKEN_ID_NUM
+    long tokenId = dbManager.getDynamicPropertiesStore().getTokenIdNum();
+    AssetIssueCapsule assetIssueCapsule = dbManager.getAssetIssueV2Store()
+        .get(ByteArray.fromString(String.valueOf(tokenId)));
+    if (assetIssueCapsule != null) {
+      indexStore.add(assetIssueCapsule);
+    } else {
+      logger.warn("Asset issue {} not found, owner index not updated", tokenId);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean validate() throws ContractValidateException {
+    return actuator.validate();
+  }
+
+  @Override
+  public ByteString getOwnerAddress() throws InvalidProtocolBufferException {
+    return actuator.getOwnerAddress();
+  }
+
+  @Override
+  public long calcFee() {
+    return actuator.calcFee();
+  }
+}
@@ -0,0 +1,78 @@
+package com.changyo.core.capsule;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import com.changyo.protos.Protocol.AssetIssueOwnerIndex;
+
+@Slf4j(topic = "capsule")
+public class AssetIssueOwnerIndexCapsule implements ProtoCapsule<AssetIssueOwnerIndex> {
+
+  private AssetIssueOwnerIndex assetIssueOwnerIndex;
+
+  public AssetIssueOwnerIndexCapsule(final AssetIssueOwnerIndex assetIssueOwnerIndex) {
+    this.assetIssueOwnerIndex = assetIssueOwnerIndex;
+  }
+
+  public AssetIssueOwnerIndexCapsule(final byte[] data) {
+    try {
+      this.assetIssueOwnerIndex = AssetIssueOwnerIndex.parseFrom(data);
+    } catch (InvalidProtocolBufferException e) {
+      logger.debug(e.getMessage(), e);
+    }
+  }
+
+  public AssetIssueOwnerIndexCapsule(ByteString address) {
+    this.assetIssueOwnerIndex = AssetIssueOwnerIndex.newBuilder()
+        .setAccount(address)
+        .build();
+  }
+
+  public ByteString getAccount() {
+    return this.assetIssueOwnerIndex.getAccount();
+  }
+
+  public List<ByteString> getAssetIdsList() {
+    return this.assetIssueOwnerIndex.getAssetIdsList();
+  }
+
+  public List<ByteString> getAssetNamesList() {
+    return this.assetIssueOwnerIndex.getAssetNamesList();
+  }
+
+  /**
+   * Adds one asset to the index. An asset that is already indexed, by id or, for assets issued
+   * before token ids existed, by name, is not added twice.
+   */
+  public boolean addAsset(ByteString assetId, ByteString assetName) {
+    for (int i = 0; i < this.assetIssueOwnerIndex.getAssetIdsCount(); i++) {
+      ByteString id = this.assetIssueOwnerIndex.getAssetIds(i);
+      if (assetId.isEmpty() ? id.isEmpty()
+          && this.assetIssueOwnerIndex.getAssetNames(i).equals(assetName)
+          : id.equals(assetId)) {
+        return false;
+      }
+    }
+    this.assetIssueOwnerIndex = this.assetIssueOwnerIndex.toBuilder()
+        .addAssetIds(assetId)
+        .addAssetNames(assetName)
+        .build();
+    return true;
+  }
+
+  public byte[] createDbKey() {
+    return getAccount().toByteArray();
+  }
+
+  @Override
+  public byte[] getData() {
+    return this.assetIssueOwnerIndex.toByteArray();
+  }
+
+  @Override
+  public AssetIssueOwnerIndex getInstance() {
+    return this.assetIssueOwnerIndex;
+  }
+
+}
@@ -0,0 +1,47 @@
+package com.changyo.core.db;
+
+import com.google.protobuf.ByteString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.changyo.core.capsule.AssetIssueCapsule;
+import com.changyo.core.capsule.AssetIssueOwnerIndexCapsule;
+
+/**
+ * Secondary index from owner address to the assets issued by that address.
+ */
+@Slf4j(topic = "DB")
+@Component
+public class AssetIssueOwnerIndexStore extends
+    TronStoreWithRevoking<AssetIssueOwnerIndexCapsule> {
+
+  @Autowired
+  public AssetIssueOwnerIndexStore(@Value("asset-issue-owner-index") String dbName) {
+    super(dbName);
+  }
+
+  @Override
+  public AssetIssueOwnerIndexCapsule get(byte[] key) {
+    byte[] value = revokingDB.getUnchecked(key);
+    return ArrayUtils.isEmpty(value) ? null : new AssetIssueOwnerIndexCapsule(value);
+  }
+
+  /**
+   * Records that the owner of assetIssueCapsule has issued it. Called for every executed
+   * AssetIssueContract, inside the revoking session of its block, and by the migration.
+   */
+  public synchronized void add(AssetIssueCapsule assetIssueCapsule) {
+    ByteString owner = assetIssueCapsule.getOwnerAddress();
+    AssetIssueOwnerIndexCapsule indexCapsule = get(owner.toByteArray());
+    if (indexCapsule == null) {
+      indexCapsule = new AssetIssueOwnerIndexCapsule(owner);
+    }
+    if (indexCapsule.addAsset(ByteString.copyFromUtf8(assetIssueCapsule.getId()),
+        assetIssueCapsule.getName())) {
+      put(indexCapsule.createDbKey(), indexCapsule);
+    }
+  }
+
+}
@@ -0,0 +1,177 @@
+package com.changyo.common.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Base58Check codec for addresses.
+ *
+ * <p>The base conversion works on machine-word limbs (five base58 digits per limb when encoding,
+ * four bytes per limb when decoding) instead of one digit at a time, and the double SHA-256
+ * checksum uses a per-thread digest. Results for the most recently used addresses are kept in a
+ * small cache, so hot accounts such as the supply addresses skip the conversion entirely.
+ * Output is identical to Base58.encode / Base58.decode.</p>
+ */
+public final class Base58Check {
+
+  private static final char[] ALPHABET =
+      "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+  private static final int[] INDEXES = new int[128];
+  private static final long LIMB_BASE = 58L * 58 * 58 * 58 * 58;
+  private static final int LIMB_DIGITS = 5;
+  private static final int CHECKSUM_SIZE = 4;
+  private static final int CACHE_SIZE = 4096;
+
+  private static final ThreadLocal<MessageDigest> SHA256 =
+      ThreadLocal.withInitial(Sha256Hash::newDigest);
+
+  private static final Cache<ByteString, String> ENCODE_CACHE =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+  private static final Cache<String, byte[]> DECODE_CACHE =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  static {
+    Arrays.fill(INDEXES, -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      INDEXES[ALPHABET[i]] = i;
+    }
+  }
+
+  private Base58Check() {
+  }
+
+  /**
+   * Appends the first four bytes of the double SHA-256 of the input and encodes the result.
+   */
+  public static String encode58Check(byte[] input) {
+    ByteString key = ByteString.copyFrom(input);
+    String encoded = ENCODE_CACHE.getIfPresent(key);
+    if (encoded != null) {
+      return encoded;
+    }
+
+    byte[] hash = doubleSha256(input, input.length);
+    byte[] inputCheck = Arrays.copyOf(input, input.length + CHECKSUM_SIZE);
+    System.arraycopy(hash, 0, inputCheck, input.length, CHECKSUM_SIZE);
+    encoded = encode(inputCheck);
+    ENCODE_CACHE.put(key, encoded);
+    return encoded;
+  }
+
+  /**
+   * Decodes the input and verifies its checksum. Returns the payload without the checksum, or
+   * null if the input is too short or the checksum does not match.
+   *
+   * @throws IllegalArgumentException if the input holds a character outside the alphabet
+   */
+  public static byte[] decode58Check(String input) {
+    byte[] decoded = DECODE_CACHE.getIfPresent(input);
+    if (decoded != null) {
+      return decoded.clone();
+    }
+
+    byte[] decodeCheck = decode(input);
+    if (decodeCheck.length <= CHECKSUM_SIZE) {
+      return null;
+    }
+    int dataLength = decodeCheck.length - CHECKSUM_SIZE;
+    byte[] hash = doubleSha256(decodeCheck, dataLength);
+    for (int i = 0; i < CHECKSUM_SIZE; i++) {
+      if (hash[i] != decodeCheck[dataLength + i]) {
+        return null;
+      }
+    }
+    decoded = Arrays.copyOf(decodeCheck, dataLength);
+    DECODE_CACHE.put(input, decoded.clone());
+    return decoded;
+  }
+
+  public static String encode(byte[] input) {
+    int zeros = 0;
+    while (zeros < input.length && input[zeros] == 0) {
+      zeros++;
+    }
+
+    // log(256) / log(58) < 1.37 digits per byte
+    long[] limbs = new long[((input.length - zeros) * 137 / 100 + 1) / LIMB_DIGITS + 1];
+    int used = 0;
+    for (int i = zeros; i < input.length; i++) {
+      long carry = input[i] & 0xff;
+      for (int j = 0; j < used; j++) {
+        carry += limbs[j] << 8;
+        limbs[j] = carry % LIMB_BASE;
+        carry /= LIMB_BASE;
+      }
+      while (carry > 0) {
+        limbs[used++] = carry % LIMB_BASE;
+        carry /= LIMB_BASE;
+      }
+    }
+
+    char[] output = new char[zeros + used * LIMB_DIGITS];
+    int pos = output.length;
+    for (int j = 0; j < used; j++) {
+      long limb = limbs[j];
+      boolean top = j == used - 1;
+      for (int k = 0; k < LIMB_DIGITS && !(top && limb == 0); k++) {
+        output[--pos] = ALPHABET[(int) (limb % 58)];
+        limb /= 58;
+      }
+    }
+    for (int i = 0; i < zeros; i++) {
+      output[--pos] = ALPHABET[0];
+    }
+    return new String(output, pos, output.length - pos);
+  }
+
+  public static byte[] decode(String input) {
+    int length = input.length();
+    int zeros = 0;
+    while (zeros < length && input.charAt(zeros) == ALPHABET[0]) {
+      zeros++;
+    }
+
+    // log(58) / log(256) < 0.74 bytes per digit
+    int[] limbs = new int[((length - zeros) * 74 / 100 + 1) / 4 + 1];
+    int used = 0;
+    for (int i = zeros; i < length; i++) {
+      char c = input.charAt(i);
+      int digit = c < 128 ? INDEXES[c] : -1;
+      if (digit < 0) {
+        throw new IllegalArgumentException("Illegal character " + c + " at " + i);
+      }
+      long carry = digit;
+      for (int j = 0; j < used; j++) {
+        carry += (limbs[j] & 0xffffffffL) * 58;
+        limbs[j] = (int) carry;
+        carry >>>= 32;
+      }
+      if (carry > 0) {
+        limbs[used++] = (int) carry;
+      }
+    }
+
+    int topBytes = used == 0 ? 0 : 4 - Integer.numberOfLeadingZeros(limbs[used - 1]) / 8;
+    byte[] output = new byte[zeros + (used == 0 ? 0 : (used - 1) * 4 + topBytes)];
+    int pos = output.length;
+    for (int j = 0; j < used; j++) {
+      int limb = limbs[j];
+      int bytes = j == used - 1 ? topBytes : 4;
+      for (int k = 0; k < bytes; k++) {
+        output[--pos] = (byte) limb;
+        limb >>>= 8;
+      }
+    }
+    return output;
+  }
+
+  private static byte[] doubleSha256(byte[] input, int length) {
+    MessageDigest digest = SHA256.get();
+    digest.reset();
+    digest.update(input, 0, length);
+    return digest.digest(digest.digest());
+  }
+}
@@ -0,0 +1,547 @@
+package com.changyo.core.services.http;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.changyo.core.capsule.BlockCapsule.BlockId;
+import com.changyo.core.db.Manager;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs several read-only wallet HTTP calls in one request.
+ *
+ * <p>Input: {@code [{"path": "/getaccount", "body": {...}, "params": {"visible": "true"}}, ...]},
+ * where params are the query parameters of the call. Sub-requests are dispatched in parallel to
+ * the servlets in {@link #READ_ONLY_PATHS}; nothing that creates, signs or broadcasts a
+ * transaction can be reached from here. Every call gets its own detached request and a fully
+ * buffered response, so nothing a sub-servlet does, including a call that outlives its timeout,
+ * reaches the Jetty request or response of the batch.</p>
+ *
+ * <p>The response carries the head block the results were read at. If the head moves while the
+ * batch runs, the whole batch is run again, up to {@link #MAX_ATTEMPTS} times; consistent is
+ * true only when one complete run started and finished on the same head block.</p>
+ */
+@Component
+@Slf4j(topic = "API")
+public class BatchServlet extends HttpServlet {
+
+  private static final int MAX_BATCH_SIZE = 100;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final int QUEUE_SIZE = 1000;
+  private static final long BATCH_TIMEOUT_MS = 10_000L;
+
+  public static final Set<String> READ_ONLY_PATHS = ImmutableSet.of(
+      "/getaccount", "/getaccounts", "/getaccountnet", "/getaccountresource",
+      "/getassetissuebyaccount", "/getassetissuebyname", "/getassetissuelistbyname",
+      "/getassetissuebyid", "/getassetissuelist", "/getpaginatedassetissuelist",
+      "/getnowblock", "/getblockbynum", "/getblockbyid", "/getblockbylimitnext",
+      "/getblockbylatestnum", "/getblockstatsbylimitnext", "/gettransactionbyid",
+      "/gettransactioninfobyid", "/gettransactioninfobyids", "/gettransactioncountbyblocknum",
+      "/totaltransaction", "/getnextmaintenancetime", "/listwitnesses", "/listproposals",
+      "/getproposalbyid", "/getpaginatedproposallist", "/listexchanges", "/getexchangebyid",
+      "/getpaginatedexchangelist", "/getchainparameters", "/getchainparametersifchanged",
+      "/getcontract", "/getsignweight", "/getapprovedlist", "/getdelegatedresource",
+      "/getdelegatedresourceaccountindex", "/validateaddress", "/listwitnessesbycursor",
+      "/listproposalsbycursor", "/listexchangesbycursor", "/getassetissuelistbycursor");
+
+  @Autowired
+  private Manager dbManager;
+
+  private final Map<String, HttpServlet> routes = new ConcurrentHashMap<>();
+
+  private final ExecutorService executor = new ThreadPoolExecutor(
+      Math.max(1, Runtime.getRuntime().availableProcessors()),
+      Math.max(1, Runtime.getRuntime().availableProcessors()),
+      0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+      new ThreadFactoryBuilder().setNameFormat("http-batch-%d").setDaemon(true).build());
+
+  /**
+   * Makes the servlet callable from a batch if path is one of {@link #READ_ONLY_PATHS}; other
+   * paths are ignored.
+   */
+  public void register(String path, HttpServlet servlet) {
+    if (READ_ONLY_PATHS.contains(path) && servlet != this) {
+      routes.put(path, servlet);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      String input = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(input);
+      JSONArray calls = JSONArray.parseArray(input);
+      if (calls == null || calls.isEmpty()) {
+        throw new IllegalArgumentException("batch is empty");
+      }
+      if (calls.size() > MAX_BATCH_SIZE) {
+        throw new IllegalArgumentException("batch size is too big, limit is " + MAX_BATCH_SIZE);
+      }
+
+      BlockId headBlockId;
+      JSONArray results;
+      boolean consistent;
+      int attempts = 0;
+      do {
+        headBlockId = dbManager.getHeadBlockId();
+        results = runAll(calls);
+        consistent = headBlockId.equals(dbManager.getHeadBlockId());
+      } while (!consistent && ++attempts < MAX_ATTEMPTS);
+
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put("blockNum", headBlockId.getNum());
+      jsonObject.put("consistent", consistent);
+      jsonObject.put("results", results);
+      response.getWriter().println(jsonObject.toJSONString());
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+
+  private JSONArray runAll(JSONArray calls) throws InterruptedException {
+    List<Future<Object>> futures = new ArrayList<>(calls.size());
+    try {
+      for (int i = 0; i < calls.size(); i++) {
+        JSONObject call = calls.getJSONObject(i);
+        futures.add(executor.submit(() -> runOne(call)));
+      }
+    } catch (RejectedExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      throw new IllegalStateException("batch executor is busy, try again later");
+    }
+
+    long deadline = System.currentTimeMillis() + BATCH_TIMEOUT_MS;
+    JSONArray results = new JSONArray();
+    for (Future<Object> future : futures) {
+      try {
+        results.add(future.get(Math.max(0, deadline - System.currentTimeMillis()),
+            TimeUnit.MILLISECONDS));
+      } catch (ExecutionException e) {
+        results.add(error(e.getCause().getClass() + " : " + e.getCause().getMessage()));
+      } catch (TimeoutException e) {
+        // the call keeps its own request and response, so if it does not react to the
+        // interrupt it can only write into a buffer nobody reads any more
+        future.cancel(true);
+        results.add(error("call timed out after " + BATCH_TIMEOUT_MS + " ms"));
+      }
+    }
+    return results;
+  }
+
+  private static JSONObject error(String message) {
+    JSONObject error = new JSONObject();
+    error.put("Error", message);
+    return error;
+  }
+
+  private Object runOne(JSONObject call) throws Exception {
+    String path = call.getString("path");
+    HttpServlet servlet =
+        path == null ? null : routes.get(path.startsWith("/") ? path : "/" + path);
+    if (servlet == null) {
+      throw new IllegalArgumentException("unknown path: " + path);
+    }
+    Object body = call.get("body");
+    String bodyString = body == null ? "{}"
+        : body instanceof String ? (String) body : JSON.toJSONString(body);
+
+    Map<String, String[]> params = new HashMap<>();
+    JSONObject jsonParams = call.getJSONObject("params");
+    if (jsonParams != null) {
+      jsonParams.forEach((name, value) ->
+          params.put(name, new String[]{String.valueOf(value)}));
+    }
+
+    BatchResponse response = new BatchResponse();
+    servlet.service(new BatchRequest(path, bodyString, params), response);
+
+    String result = response.getContent().trim();
+    if (response.getStatus() != HttpServletResponse.SC_OK) {
+      JSONObject error = error(result.isEmpty() ? "HTTP " + response.getStatus() : result);
+      error.put("status", response.getStatus());
+      return error;
+    }
+    try {
+      return result.isEmpty() ? new JSONObject() : JSON.parse(result);
+    } catch (JSONException e) {
+      return result;
+    }
+  }
+
+  /**
+   * Returns a placeholder of the given servlet interface whose methods all return the default
+   * value of their type, so the wrappers below never fall through to a live Jetty object.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T detached(Class<T> type) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        (proxy, method, args) -> {
+          Class<?> returnType = method.getReturnType();
+          if (returnType == boolean.class) {
+            return false;
+          } else if (returnType == int.class) {
+            return 0;
+          } else if (returnType == long.class) {
+            return 0L;
+          } else if (returnType == Enumeration.class) {
+            return Collections.emptyEnumeration();
+          } else if (returnType == Collection.class) {
+            return Collections.emptyList();
+          } else if (returnType == Map.class) {
+            return Collections.emptyMap();
+          }
+          return null;
+        });
+  }
+
+  private static class BatchRequest extends HttpServletRequestWrapper {
+
+    private final String path;
+    private final String body;
+    private final Map<String, String[]> params;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    BatchRequest(String path, String body, Map<String, String[]> params) {
+      super(detached(HttpServletRequest.class));
+      this.path = path.startsWith("/") ? path : "/" + path;
+      this.body = body;
+      this.params = Collections.unmodifiableMap(params);
+    }
+
+    @Override
+    public String getMethod() {
+      return "POST";
+    }
+
+    @Override
+    public String getRequestURI() {
+      return path;
+    }
+
+    @Override
+    public String getServletPath() {
+      return path;
+    }
+
+    @Override
+    public String getContentType() {
+      return "application/json";
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+      return StandardCharsets.UTF_8.name();
+    }
+
+    @Override
+    public int getContentLength() {
+      return body.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+      return new BufferedReader(new StringReader(body));
+    }
+
+    @Override
+    public String getQueryString() {
+      return null;
+    }
+
+    @Override
+    public String getParameter(String name) {
+      String[] values = params.get(name);
+      return values == null ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+      String[] values = params.get(name);
+      return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+      return params;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+      return Collections.enumeration(params.keySet());
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+      return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+      return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+      attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+      attributes.remove(name);
+    }
+  }
+
+  /**
+   * Keeps status, headers and body of one sub-call in memory. Only {@link #getContent()} is
+   * read back by the batch; nothing is ever forwarded to the real response.
+   */
+  private static class BatchResponse extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Map<String, List<String>> headers = new HashMap<>();
+    private PrintWriter writer;
+    private ServletOutputStream outputStream;
+    private int status = SC_OK;
+    private String contentType;
+    private String characterEncoding = StandardCharsets.UTF_8.name();
+
+    BatchResponse() {
+      super(detached(HttpServletResponse.class));
+    }
+
+    String getContent() {
+      if (writer != null) {
+        writer.flush();
+      }
+      return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+      if (outputStream != null) {
+        throw new IllegalStateException("getOutputStream() has already been called");
+      }
+      if (writer == null) {
+        writer = new PrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+      }
+      return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (writer != null) {
+        throw new IllegalStateException("getWriter() has already been called");
+      }
+      if (outputStream == null) {
+        outputStream = new ServletOutputStream() {
+          @Override
+          public void write(int b) {
+            buffer.write(b);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            buffer.write(b, off, len);
+          }
+
+          public boolean isReady() {
+            return true;
+          }
+
+          public void setWriteListener(WriteListener writeListener) {
+          }
+        };
+      }
+      return outputStream;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+      status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+      return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+      sendError(sc, null);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+      status = sc;
+      resetBuffer();
+      if (msg != null) {
+        byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+      }
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+      status = SC_FOUND;
+      setHeader("Location", location);
+    }
+
+    @Override
+    public void setContentType(String type) {
+      contentType = type;
+    }
+
+    @Override
+    public String getContentType() {
+      return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+      characterEncoding = charset;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+      return characterEncoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      List<String> values = new ArrayList<>();
+      values.add(value);
+      headers.put(name, values);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      headers.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+      setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+      addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+      setHeader(name, String.valueOf(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+      addHeader(name, String.valueOf(date));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+      return headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+      List<String> values = headers.get(name);
+      return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+      return headers.getOrDefault(name, Collections.emptyList());
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+      return headers.keySet();
+    }
+
+    @Override
+    public boolean isCommitted() {
+      return false;
+    }
+
+    @Override
+    public void flushBuffer() {
+      if (writer != null) {
+        writer.flush();
+      }
+    }
+
+    @Override
+    public void resetBuffer() {
+      if (writer != null) {
+        writer.flush();
+      }
+      buffer.reset();
+    }
+
+    @Override
+    public void reset() {
+      resetBuffer();
+      headers.clear();
+      status = SC_OK;
+      contentType = null;
+    }
+  }
+}
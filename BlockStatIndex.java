@@ -0,0 +1,412 @@
+package com.changyo.core.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.core.capsule.BlockCapsule;
+import com.changyo.core.capsule.BlockCapsule.BlockId;
+import com.changyo.core.capsule.TransactionCapsule;
+import com.changyo.core.capsule.TransactionInfoCapsule;
+import com.changyo.core.config.Parameter.ChainParameters;
+import com.changyo.core.config.args.Args;
+import com.changyo.core.exception.StoreException;
+import com.changyo.protos.Protocol.ResourceReceipt;
+import com.changyo.protos.Protocol.Transaction;
+import com.changyo.protos.Protocol.Transaction.Contract.ContractType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Block number to (transaction count, block size, total fee) index.
+ *
+ * <p>Records have a fixed width and live in a memory-mapped file at offset
+ * {@code blockNum * RECORD_SIZE}, so a lookup is one read and a range is a sequential scan, with
+ * no block decoding. Only solidified blocks are recorded, since they can no longer be replaced
+ * by a fork switch: a background task follows the solidified block number, and a read of a
+ * solidified block without a record builds and stores it. With storage.blockStatIndex.backfill
+ * off, the task starts at the block solidified at startup instead of at genesis. A block this
+ * node does not have, on a lite or pruned node, is recorded as absent and skipped. Blocks above
+ * the solidified one are built once per block id and kept in memory until they solidify. The
+ * task also flushes the segments it has written, and on every start it re-checks the records
+ * from where it begins, rebuilding any a crash left unwritten.</p>
+ *
+ * <p>The fees of a block are summed from the transaction infos of its transactions, so they are
+ * only known when the transaction history store is on; {@link BlockStat#isFeeKnown()} tells
+ * whether they are. The transactions charged a flat fee are counted by kind.</p>
+ */
+@Slf4j(topic = "DB")
+@Component
+public class BlockStatIndex {
+
+  private static final String DB_NAME = "block-stat-index";
+
+  // int state, int txCount, long totalFee, int blockSize, int flags, long energyFee,
+  // long netFee, int count per FixedFee
+  private static final int RECORD_SIZE = 64;
+  private static final int STATE_PRESENT = 1;
+  private static final int STATE_ABSENT = 2;
+  private static final int FLAG_FEE_KNOWN = 1;
+  private static final int FIXED_FEE_OFFSET = 40;
+  private static final int RECORDS_PER_SEGMENT = 1 << 20;
+  private static final long SEGMENT_SIZE = (long) RECORD_SIZE * RECORDS_PER_SEGMENT;
+
+  private static final long INDEX_INTERVAL_MS = 1000L;
+  // blocks built per run of the background task, so catching up does not starve block processing
+  private static final int INDEX_BATCH = 1000;
+
+  @Autowired
+  private Manager dbManager;
+
+  private RandomAccessFile file;
+  private final ConcurrentMap<Integer, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+  // segments written since the last flush
+  private final Set<MappedByteBuffer> dirtySegments = ConcurrentHashMap.newKeySet();
+  // stats of blocks above the solidified one, keyed by number and checked against the block id
+  private final ConcurrentMap<Long, RecentStat> recentStats = new ConcurrentHashMap<>();
+
+  // every solidified block up to this number has a record
+  private volatile long indexedNum = -1;
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("block-stat-index").setDaemon(true).build());
+
+  @PostConstruct
+  public void init() {
+    Args args = Args.getInstance();
+    File path = Paths.get(args.getOutputDirectoryByDbName(DB_NAME),
+        args.getStorage().getDbDirectory(), DB_NAME).toFile();
+    try {
+      path.getParentFile().mkdirs();
+      file = new RandomAccessFile(path, "rw");
+    } catch (IOException e) {
+      logger.error("Open block stat index failed, the index is disabled.", e);
+      return;
+    }
+    if (!args.isBlockStatIndexBackfill()) {
+      indexedNum = dbManager.getDynamicPropertiesStore().getLatestSolidifiedBlockNum();
+    }
+    executor.scheduleWithFixedDelay(() -> {
+      try {
+        indexSolidifiedBlocks();
+      } catch (Throwable t) {
+        logger.error("Index block stats failed.", t);
+      }
+    }, INDEX_INTERVAL_MS, INDEX_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void close() {
+    executor.shutdownNow();
+    flush();
+    try {
+      if (file != null) {
+        file.close();
+      }
+    } catch (IOException e) {
+      logger.warn("Close block stat index failed, {}.", e.getMessage());
+    }
+  }
+
+  private void indexSolidifiedBlocks() {
+    long solidifiedNum = dbManager.getDynamicPropertiesStore().getLatestSolidifiedBlockNum();
+    recentStats.keySet().removeIf(num -> num <= solidifiedNum);
+    int built = 0;
+    long num = indexedNum + 1;
+    while (num <= solidifiedNum && built < INDEX_BATCH) {
+      if (state(num) == 0) {
+        BlockCapsule blockCapsule = getBlock(num);
+        if (blockCapsule == null) {
+          writeAbsent(num);
+        } else {
+          write(build(blockCapsule));
+        }
+        built++;
+      }
+      indexedNum = num++;
+    }
+    flush();
+  }
+
+  private void flush() {
+    for (MappedByteBuffer segment : dirtySegments) {
+      dirtySegments.remove(segment);
+      segment.force();
+    }
+  }
+
+  private BlockCapsule getBlock(long blockNum) {
+    try {
+      return dbManager.getBlockByNum(blockNum);
+    } catch (StoreException e) {
+      logger.debug("Block {} not found, {}.", blockNum, e.getMessage());
+      return null;
+    }
+  }
+
+  private BlockStat build(BlockCapsule blockCapsule) {
+    List<TransactionCapsule> transactions = blockCapsule.getTransactions();
+    long totalFee = 0;
+    long energyFee = 0;
+    long netFee = 0;
+    boolean feeKnown = true;
+    int[] fixedFeeCounts = new int[FixedFee.values().length];
+    for (TransactionCapsule trx : transactions) {
+      TransactionInfoCapsule info = dbManager.getTransactionHistoryStore()
+          .getUnchecked(trx.getTransactionId().getBytes());
+      if (info != null) {
+        ResourceReceipt receipt = info.getInstance().getReceipt();
+        totalFee += info.getInstance().getFee();
+        energyFee += receipt.getEnergyFee();
+        netFee += receipt.getNetFee();
+      } else {
+        // no transaction history on this node, or not for this transaction
+        feeKnown = false;
+      }
+      FixedFee.forTransaction(trx.getInstance())
+          .forEach(fixedFee -> fixedFeeCounts[fixedFee.ordinal()]++);
+    }
+    return new BlockStat(blockCapsule.getNum(), transactions.size(),
+        blockCapsule.getInstance().getSerializedSize(), feeKnown, totalFee, energyFee, netFee,
+        fixedFeeCounts);
+  }
+
+  private void writeAbsent(long blockNum) {
+    MappedByteBuffer segment = getSegment(blockNum);
+    if (segment == null) {
+      return;
+    }
+    synchronized (segment) {
+      segment.putInt(recordOffset(blockNum), STATE_ABSENT);
+    }
+    dirtySegments.add(segment);
+  }
+
+  private void write(BlockStat stat) {
+    long blockNum = stat.getBlockNum();
+    MappedByteBuffer segment = getSegment(blockNum);
+    if (segment == null) {
+      return;
+    }
+    int offset = recordOffset(blockNum);
+    synchronized (segment) {
+      segment.putInt(offset, 0);
+      segment.putInt(offset + 4, stat.getTxCount());
+      segment.putLong(offset + 8, stat.getTotalFee());
+      segment.putInt(offset + 16, stat.getBlockSize());
+      segment.putInt(offset + 20, stat.isFeeKnown() ? FLAG_FEE_KNOWN : 0);
+      segment.putLong(offset + 24, stat.getEnergyFee());
+      segment.putLong(offset + 32, stat.getNetFee());
+      for (int i = 0; i < stat.fixedFeeCounts.length; i++) {
+        segment.putInt(offset + FIXED_FEE_OFFSET + i * 4, stat.fixedFeeCounts[i]);
+      }
+      segment.putInt(offset, STATE_PRESENT);
+    }
+    dirtySegments.add(segment);
+  }
+
+  /**
+   * Returns the stats of the block, or null if the block does not exist.
+   */
+  public BlockStat get(long blockNum) {
+    if (blockNum < 0 || blockNum > dbManager.getHeadBlockNum()) {
+      return null;
+    }
+    int state = state(blockNum);
+    if (state == STATE_PRESENT) {
+      return read(blockNum);
+    } else if (state == STATE_ABSENT) {
+      return null;
+    }
+
+    if (blockNum <= dbManager.getDynamicPropertiesStore().getLatestSolidifiedBlockNum()) {
+      BlockCapsule blockCapsule = getBlock(blockNum);
+      if (blockCapsule == null) {
+        writeAbsent(blockNum);
+        return null;
+      }
+      BlockStat stat = build(blockCapsule);
+      write(stat);
+      return stat;
+    }
+
+    BlockId blockId;
+    try {
+      blockId = dbManager.getBlockIdByNum(blockNum);
+    } catch (StoreException e) {
+      return null;
+    }
+    RecentStat recent = recentStats.get(blockNum);
+    if (recent != null && recent.blockId.equals(blockId)) {
+      return recent.stat;
+    }
+    BlockCapsule blockCapsule = getBlock(blockNum);
+    if (blockCapsule == null) {
+      return null;
+    }
+    BlockStat stat = build(blockCapsule);
+    recentStats.put(blockNum, new RecentStat(blockCapsule.getBlockId(), stat));
+    return stat;
+  }
+
+  private int state(long blockNum) {
+    MappedByteBuffer segment = getSegment(blockNum);
+    if (segment == null) {
+      return 0;
+    }
+    synchronized (segment) {
+      return segment.getInt(recordOffset(blockNum));
+    }
+  }
+
+  /**
+   * Returns the recorded stats of the block, or null if it has none yet. Never builds a record,
+   * so it costs one read whatever the block.
+   */
+  public BlockStat getIndexed(long blockNum) {
+    return read(blockNum);
+  }
+
+  private BlockStat read(long blockNum) {
+    MappedByteBuffer segment = getSegment(blockNum);
+    if (segment == null) {
+      return null;
+    }
+    int offset = recordOffset(blockNum);
+    synchronized (segment) {
+      if (segment.getInt(offset) != STATE_PRESENT) {
+        return null;
+      }
+      int[] fixedFeeCounts = new int[FixedFee.values().length];
+      for (int i = 0; i < fixedFeeCounts.length; i++) {
+        fixedFeeCounts[i] = segment.getInt(offset + FIXED_FEE_OFFSET + i * 4);
+      }
+      return new BlockStat(blockNum, segment.getInt(offset + 4), segment.getInt(offset + 16),
+          (segment.getInt(offset + 20) & FLAG_FEE_KNOWN) != 0, segment.getLong(offset + 8),
+          segment.getLong(offset + 24), segment.getLong(offset + 32), fixedFeeCounts);
+    }
+  }
+
+  /**
+   * Returns the stats of blocks [startNum, endNum), stopping at the first block that does not
+   * exist.
+   */
+  public List<BlockStat> getRange(long startNum, long endNum) {
+    List<BlockStat> stats = new ArrayList<>((int) Math.max(0, endNum - startNum));
+    for (long num = startNum; num < endNum; num++) {
+      BlockStat stat = get(num);
+      if (stat == null) {
+        break;
+      }
+      stats.add(stat);
+    }
+    return stats;
+  }
+
+  private MappedByteBuffer getSegment(long blockNum) {
+    if (file == null || blockNum < 0) {
+      return null;
+    }
+    int index = (int) (blockNum / RECORDS_PER_SEGMENT);
+    return segments.computeIfAbsent(index, i -> {
+      try {
+        return file.getChannel()
+            .map(FileChannel.MapMode.READ_WRITE, i * SEGMENT_SIZE, SEGMENT_SIZE);
+      } catch (IOException e) {
+        logger.error("Map block stat index segment {} failed.", i, e);
+        return null;
+      }
+    });
+  }
+
+  private static int recordOffset(long blockNum) {
+    return (int) (blockNum % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class BlockStat {
+
+    private final long blockNum;
+    private final int txCount;
+    private final int blockSize;
+    // false when a transaction info was missing, the fees below are then incomplete
+    private final boolean feeKnown;
+    private final long totalFee;
+    // burned for energy and for bandwidth, part of totalFee
+    private final long energyFee;
+    private final long netFee;
+    private final int[] fixedFeeCounts;
+
+    public int getFixedFeeCount(FixedFee fixedFee) {
+      return fixedFeeCounts[fixedFee.ordinal()];
+    }
+  }
+
+  private static class RecentStat {
+
+    private final BlockId blockId;
+    private final BlockStat stat;
+
+    RecentStat(BlockId blockId, BlockStat stat) {
+      this.blockId = blockId;
+      this.stat = stat;
+    }
+  }
+
+  /**
+   * Flat fees set by a proposal parameter, charged once per transaction of a kind.
+   */
+  public enum FixedFee {
+    ACCOUNT_CREATE(ContractType.AccountCreateContract,
+        ChainParameters.CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT),
+    WITNESS_CREATE(ContractType.WitnessCreateContract, ChainParameters.ACCOUNT_UPGRADE_COST),
+    ASSET_ISSUE(ContractType.AssetIssueContract, ChainParameters.ASSET_ISSUE_FEE),
+    EXCHANGE_CREATE(ContractType.ExchangeCreateContract, ChainParameters.EXCHANGE_CREATE_FEE),
+    ACCOUNT_PERMISSION_UPDATE(ContractType.AccountPermissionUpdateContract,
+        ChainParameters.UPDATE_ACCOUNT_PERMISSION_FEE),
+    // any transaction signed more than once
+    MULTI_SIGN(null, ChainParameters.MULTI_SIGN_FEE);
+
+    private final ContractType contractType;
+    @Getter
+    private final ChainParameters parameter;
+
+    FixedFee(ContractType contractType, ChainParameters parameter) {
+      this.contractType = contractType;
+      this.parameter = parameter;
+    }
+
+    static List<FixedFee> forTransaction(Transaction transaction) {
+      List<FixedFee> fixedFees = new ArrayList<>(2);
+      if (transaction.getRawData().getContractCount() > 0) {
+        ContractType type = transaction.getRawData().getContract(0).getType();
+        for (FixedFee fixedFee : values()) {
+          if (fixedFee.contractType == type) {
+            fixedFees.add(fixedFee);
+          }
+        }
+      }
+      if (transaction.getSignatureCount() > 1) {
+        fixedFees.add(MULTI_SIGN);
+      }
+      return fixedFees;
+    }
+  }
+}
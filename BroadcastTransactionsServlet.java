@@ -0,0 +1,56 @@
+package com.changyo.core.services.http;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.api.GrpcAPI.ReturnList;
+import com.changyo.core.Wallet;
+import com.changyo.protos.Protocol.Transaction;
+
+
+/**
+ * Input: a JSON array of signed transactions in the same format as broadcasttransaction.
+ */
+@Component
+@Slf4j(topic = "API")
+public class BroadcastTransactionsServlet extends HttpServlet {
+
+  @Autowired
+  private Wallet wallet;
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      String input = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(input);
+      JSONArray jsonTransactions = JSONArray.parseArray(input);
+      List<Transaction> transactions = new ArrayList<>(jsonTransactions.size());
+      for (int i = 0; i < jsonTransactions.size(); i++) {
+        JSONObject jsonTransaction = jsonTransactions.getJSONObject(i);
+        transactions.add(Util.packTransaction(jsonTransaction.toJSONString()));
+      }
+      ReturnList result = wallet.broadcastTransactions(transactions);
+      response.getWriter().println(JsonFormat.printToString(result));
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+}
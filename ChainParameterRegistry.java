@@ -0,0 +1,444 @@
+package com.changyo.core;
+
+import static com.changyo.core.actuator.ActuatorConstant.ACCOUNT_EXCEPTION_STR;
+import static com.changyo.core.actuator.ActuatorConstant.NOT_EXIST_STR;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import com.changyo.common.storage.Deposit;
+import com.changyo.common.utils.ByteArray;
+import com.changyo.common.utils.StringUtil;
+import com.changyo.core.config.Parameter;
+import com.changyo.core.config.Parameter.ChainParameters;
+import com.changyo.core.db.DynamicPropertiesStore;
+import com.changyo.core.db.Manager;
+import com.changyo.core.db2.core.ISession;
+import com.changyo.core.exception.ContractValidateException;
+
+/**
+ * One descriptor per proposal parameter: how its value is decoded, validated when a proposal is
+ * created, written when a proposal is approved and read back for getchainparameters.
+ *
+ * <p>A new parameter only needs a constant in {@link ChainParameters} and a registration
+ * here.</p>
+ */
+public final class ChainParameterRegistry {
+
+  private static final long MAX_FEE = 100_000_000_000_000_000L;
+  private static final String MAX_FEE_MESSAGE =
+      "Bad chain parameter value,valid range is [0,100_000_000_000_000_000L]";
+  private static final long MAX_SIGN_FEE = 100_000_000_000L;
+  private static final String MAX_SIGN_FEE_MESSAGE =
+      "Bad chain parameter value,valid range is [0,100_000_000_000L]";
+
+  private static final List<Descriptor<?>> DESCRIPTORS;
+
+  static {
+    Descriptor<?>[] descriptors = new Descriptor<?>[ChainParameters.values().length];
+    register(descriptors, longParameter(ChainParameters.MAINTENANCE_TIME_INTERVAL,
+        "getMaintenanceTimeInterval", DynamicPropertiesStore::getMaintenanceTimeInterval,
+        DynamicPropertiesStore::saveMaintenanceTimeInterval)
+        .validator(range(3 * 27 * 1000, 24 * 3600 * 1000,
+            "Bad chain parameter value,valid range is [3 * 27 * 1000,24 * 3600 * 1000]")));
+    register(descriptors, longParameter(ChainParameters.ACCOUNT_UPGRADE_COST,
+        "getAccountUpgradeCost", DynamicPropertiesStore::getAccountUpgradeCost,
+        DynamicPropertiesStore::saveAccountUpgradeCost)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.CREATE_ACCOUNT_FEE,
+        "getCreateAccountFee", DynamicPropertiesStore::getCreateAccountFee,
+        DynamicPropertiesStore::saveCreateAccountFee)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.TRANSACTION_FEE,
+        "getTransactionFee", DynamicPropertiesStore::getTransactionFee,
+        DynamicPropertiesStore::saveTransactionFee)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.ASSET_ISSUE_FEE,
+        "getAssetIssueFee", DynamicPropertiesStore::getAssetIssueFee,
+        DynamicPropertiesStore::saveAssetIssueFee)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.WITNESS_PAY_PER_BLOCK,
+        "getWitnessPayPerBlock", DynamicPropertiesStore::getWitnessPayPerBlock,
+        DynamicPropertiesStore::saveWitnessPayPerBlock)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.WITNESS_STANDBY_ALLOWANCE,
+        "getWitnessStandbyAllowance", DynamicPropertiesStore::getWitnessStandbyAllowance,
+        DynamicPropertiesStore::saveWitnessStandbyAllowance)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT,
+        "getCreateNewAccountFeeInSystemContract",
+        DynamicPropertiesStore::getCreateNewAccountFeeInSystemContract,
+        DynamicPropertiesStore::saveCreateNewAccountFeeInSystemContract)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.CREATE_NEW_ACCOUNT_BANDWIDTH_RATE,
+        "getCreateNewAccountGasRate", DynamicPropertiesStore::getCreateNewAccountGasRate,
+        DynamicPropertiesStore::saveCreateNewAccountGasRate)
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.ALLOW_CREATION_OF_CONTRACTS,
+        "getAllowCreationOfContracts", DynamicPropertiesStore::getAllowCreationOfContracts,
+        DynamicPropertiesStore::saveAllowCreationOfContracts)
+        .validator(onlyOne("ALLOW_CREATION_OF_CONTRACTS")));
+    register(descriptors, longParameter(ChainParameters.REMOVE_THE_POWER_OF_THE_GR,
+        "getRemoveThePowerOfTheGr", DynamicPropertiesStore::getRemoveThePowerOfTheGr,
+        onlyOnce(DynamicPropertiesStore::getRemoveThePowerOfTheGr,
+            DynamicPropertiesStore::saveRemoveThePowerOfTheGr))
+        .gate((manager, deposit) -> {
+          if (manager.getDynamicPropertiesStore().getRemoveThePowerOfTheGr() == -1) {
+            throw new ContractValidateException(
+                "This proposal has been executed before and is only allowed to be executed once");
+          }
+        })
+        .validator(onlyOne("REMOVE_THE_POWER_OF_THE_GR")));
+    register(descriptors, longParameter(ChainParameters.ENERGY_FEE,
+        "getEnergyFee", DynamicPropertiesStore::getEnergyFee,
+        DynamicPropertiesStore::saveEnergyFee));
+    register(descriptors, longParameter(ChainParameters.EXCHANGE_CREATE_FEE,
+        "getExchangeCreateFee", DynamicPropertiesStore::getExchangeCreateFee,
+        DynamicPropertiesStore::saveExchangeCreateFee));
+    register(descriptors, longParameter(ChainParameters.MAX_CPU_TIME_OF_ONE_TX,
+        "getMaxCpuTimeOfOneTx", DynamicPropertiesStore::getMaxCpuTimeOfOneTx,
+        DynamicPropertiesStore::saveMaxCpuTimeOfOneTx)
+        .validator(range(10, 100, "Bad chain parameter value,valid range is [10,100]")));
+    register(descriptors, longParameter(ChainParameters.ALLOW_UPDATE_ACCOUNT_NAME,
+        "getAllowUpdateAccountName", DynamicPropertiesStore::getAllowUpdateAccountName,
+        DynamicPropertiesStore::saveAllowUpdateAccountName)
+        .validator(onlyOne("ALLOW_UPDATE_ACCOUNT_NAME")));
+    register(descriptors, longParameter(ChainParameters.ALLOW_SAME_TOKEN_NAME,
+        "getAllowSameTokenName", DynamicPropertiesStore::getAllowSameTokenName,
+        DynamicPropertiesStore::saveAllowSameTokenName)
+        .validator(onlyOne("ALLOW_SAME_TOKEN_NAME")));
+    register(descriptors, longParameter(ChainParameters.ALLOW_DELEGATE_RESOURCE,
+        "getAllowDelegateResource", DynamicPropertiesStore::getAllowDelegateResource,
+        DynamicPropertiesStore::saveAllowDelegateResource)
+        .validator(onlyOne("ALLOW_DELEGATE_RESOURCE")));
+    // deprecated
+    register(descriptors, longParameter(ChainParameters.TOTAL_ENERGY_LIMIT,
+        "getTotalEnergyLimit", DynamicPropertiesStore::getTotalEnergyLimit,
+        DynamicPropertiesStore::saveTotalEnergyLimit)
+        .gate((manager, deposit) -> {
+          if (!manager.getForkController().pass(Parameter.ForkBlockVersionConsts.ENERGY_LIMIT)) {
+            throw new ContractValidateException("Bad chain parameter id");
+          }
+          if (manager.getForkController().pass(Parameter.ForkBlockVersionEnum.VERSION_3_2_2)) {
+            throw new ContractValidateException("Bad chain parameter id");
+          }
+        })
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.ALLOW_TVM_TRANSFER_TRC10,
+        "getAllowTvmTransferTrc10", DynamicPropertiesStore::getAllowTvmTransferTrc10,
+        DynamicPropertiesStore::saveAllowTvmTransferTrc10)
+        .validator((value, manager, deposit) -> {
+          onlyOne("ALLOW_TVM_TRANSFER_TRC10").validate(value, manager, deposit);
+          if (manager.getDynamicPropertiesStore().getAllowSameTokenName() == 0) {
+            throw new ContractValidateException("[ALLOW_SAME_TOKEN_NAME] proposal must be approved "
+                + "before [ALLOW_TVM_TRANSFER_TRC10] can be proposed");
+          }
+        }));
+    register(descriptors, longParameter(ChainParameters.TOTAL_CURRENT_ENERGY_LIMIT,
+        "getTotalEnergyCurrentLimit", DynamicPropertiesStore::getTotalEnergyCurrentLimit,
+        DynamicPropertiesStore::saveTotalEnergyLimit2)
+        .live()
+        .gate(forkGate(Parameter.ForkBlockVersionEnum.VERSION_3_2_2, "Bad chain parameter id"))
+        .validator(range(0, MAX_FEE, MAX_FEE_MESSAGE)));
+    register(descriptors, longParameter(ChainParameters.ALLOW_MULTI_SIGN,
+        "getAllowMultiSign", DynamicPropertiesStore::getAllowMultiSign,
+        onlyOnce(DynamicPropertiesStore::getAllowMultiSign,
+            DynamicPropertiesStore::saveAllowMultiSign))
+        .gate(forkGate(Parameter.ForkBlockVersionEnum.VERSION_3_5,
+            "Bad chain parameter id: ALLOW_MULTI_SIGN"))
+        .validator(onlyOne("ALLOW_MULTI_SIGN")));
+    register(descriptors, longParameter(ChainParameters.ALLOW_ADAPTIVE_ENERGY,
+        "getAllowAdaptiveEnergy", DynamicPropertiesStore::getAllowAdaptiveEnergy,
+        onlyOnce(DynamicPropertiesStore::getAllowAdaptiveEnergy,
+            DynamicPropertiesStore::saveAllowAdaptiveEnergy))
+        .gate(forkGate(Parameter.ForkBlockVersionEnum.VERSION_3_5,
+            "Bad chain parameter id: ALLOW_ADAPTIVE_ENERGY"))
+        .validator(onlyOne("ALLOW_ADAPTIVE_ENERGY")));
+    register(descriptors, longParameter(ChainParameters.UPDATE_ACCOUNT_PERMISSION_FEE,
+        "getUpdateAccountPermissionFee", DynamicPropertiesStore::getUpdateAccountPermissionFee,
+        DynamicPropertiesStore::saveUpdateAccountPermissionFee)
+        .gate(forkGate(Parameter.ForkBlockVersionEnum.VERSION_3_5,
+            "Bad chain parameter id: UPDATE_ACCOUNT_PERMISSION_FEE"))
+        .validator(range(0, MAX_SIGN_FEE, MAX_SIGN_FEE_MESSAGE))
+        .fallsThrough(ChainParameters.MULTI_SIGN_FEE, ChainParameters.INCREASE_SUPPLY_ADDRESS));
+    register(descriptors, longParameter(ChainParameters.MULTI_SIGN_FEE,
+        "getMultiSignFee", DynamicPropertiesStore::getMultiSignFee,
+        DynamicPropertiesStore::saveMultiSignFee)
+        .gate(forkGate(Parameter.ForkBlockVersionEnum.VERSION_3_5,
+            "Bad chain parameter id: MULTI_SIGN_FEE"))
+        .validator(range(0, MAX_SIGN_FEE, MAX_SIGN_FEE_MESSAGE))
+        .fallsThrough(ChainParameters.INCREASE_SUPPLY_ADDRESS));
+    register(descriptors, addressParameter(ChainParameters.INCREASE_SUPPLY_ADDRESS,
+        "getIncreaseSupplyAddress", DynamicPropertiesStore::getIncreaseSupplyAddress,
+        DynamicPropertiesStore::saveIncreaseSupplyAddress)
+        .validator(ChainParameterRegistry::validateSupplyAddress));
+    register(descriptors, addressParameter(ChainParameters.DECREASE_SUPPLY_ADDRESS,
+        "getDecreaseSupplyAddress", DynamicPropertiesStore::getDecreaseSupplyAddress,
+        DynamicPropertiesStore::saveDecreaseSupplyAddress)
+        .validator(ChainParameterRegistry::validateSupplyAddress));
+    register(descriptors, longParameter(ChainParameters.ALLOW_NATIVE_PRECOMPILES,
+        "getAllowNativePrecompiles", DynamicPropertiesStore::getAllowNativePrecompiles,
+        onlyOnce(DynamicPropertiesStore::getAllowNativePrecompiles,
+            DynamicPropertiesStore::saveAllowNativePrecompiles))
+        .gate(forkGate(Parameter.ForkBlockVersionEnum.VERSION_3_5,
+            "Bad chain parameter id: ALLOW_NATIVE_PRECOMPILES"))
+        .validator(onlyOne("ALLOW_NATIVE_PRECOMPILES")));
+
+    for (int i = 0; i < descriptors.length; i++) {
+      if (descriptors[i] == null) {
+        throw new IllegalStateException(
+            "chain parameter " + ChainParameters.values()[i] + " is not registered");
+      }
+    }
+    DESCRIPTORS = Collections.unmodifiableList(Arrays.asList(descriptors));
+  }
+
+  private ChainParameterRegistry() {
+  }
+
+  /**
+   * Returns the descriptor of a proposal parameter id, or null if the id is unknown.
+   */
+  public static Descriptor<?> get(long id) {
+    if (id < 0 || id >= DESCRIPTORS.size()) {
+      return null;
+    }
+    return DESCRIPTORS.get((int) id);
+  }
+
+  public static Descriptor<?> get(ChainParameters parameter) {
+    return DESCRIPTORS.get(parameter.ordinal());
+  }
+
+  /**
+   * Writes the parameters of an approved proposal as one batch: every value is decoded before
+   * the first write, and the writes go to a session of their own that is merged into the block
+   * only once all of them succeeded, so the store sees either all of them or none.
+   */
+  public static void apply(Manager manager, Map<Long, String> parameters) {
+    DynamicPropertiesStore store = manager.getDynamicPropertiesStore();
+    Map<Long, String> effective = effectiveParameters(parameters);
+    List<Runnable> writes = new ArrayList<>(effective.size());
+    for (Map.Entry<Long, String> entry : effective.entrySet()) {
+      writes.add(get(entry.getKey()).prepareWrite(store, entry.getValue()));
+    }
+    try (ISession session = manager.getRevokingStore().buildSession()) {
+      writes.forEach(Runnable::run);
+      session.merge();
+    }
+  }
+
+  /**
+   * Returns the values an approved proposal would write, by parameter id. Unknown ids are
+   * ignored.
+   *
+   * <p>A value is also written to the parameters it falls through to, as the former switch
+   * did, so that every node keeps computing the same state. When two entries write the same
+   * parameter, the later one wins.</p>
+   */
+  public static Map<Long, String> effectiveParameters(Map<Long, String> parameters) {
+    Map<Long, String> effective = new LinkedHashMap<>();
+    for (Map.Entry<Long, String> entry : parameters.entrySet()) {
+      Descriptor<?> descriptor = get(entry.getKey());
+      if (descriptor == null) {
+        continue;
+      }
+      effective.put(entry.getKey(), entry.getValue());
+      for (ChainParameters next : descriptor.fallsThrough) {
+        effective.put((long) next.ordinal(), entry.getValue());
+      }
+    }
+    return effective;
+  }
+
+  private static void register(Descriptor<?>[] descriptors, Descriptor<?> descriptor) {
+    descriptors[descriptor.parameter.ordinal()] = descriptor;
+  }
+
+  private static Descriptor<Long> longParameter(ChainParameters parameter, String key,
+      Function<DynamicPropertiesStore, Long> reader,
+      BiConsumer<DynamicPropertiesStore, Long> writer) {
+    return new Descriptor<>(parameter, key, Long::parseLong, reader, value -> Long.toString(value),
+        writer);
+  }
+
+  private static Descriptor<byte[]> addressParameter(ChainParameters parameter, String key,
+      Function<DynamicPropertiesStore, byte[]> reader,
+      BiConsumer<DynamicPropertiesStore, byte[]> writer) {
+    return new Descriptor<>(parameter, key, ByteArray::fromHexString, reader,
+        Wallet::encode58Check, writer);
+  }
+
+  /**
+   * Writes the value only while the stored one is still 0.
+   */
+  private static BiConsumer<DynamicPropertiesStore, Long> onlyOnce(
+      Function<DynamicPropertiesStore, Long> reader,
+      BiConsumer<DynamicPropertiesStore, Long> writer) {
+    return (store, value) -> {
+      if (reader.apply(store) == 0) {
+        writer.accept(store, value);
+      }
+    };
+  }
+
+  private static Gate forkGate(Parameter.ForkBlockVersionEnum version, String message) {
+    return (manager, deposit) -> {
+      if (!manager.getForkController().pass(version)) {
+        throw new ContractValidateException(message);
+      }
+    };
+  }
+
+  private static Validator<Long> range(long min, long max, String message) {
+    return (value, manager, deposit) -> {
+      if (value < min || value > max) {
+        throw new ContractValidateException(message);
+      }
+    };
+  }
+
+  private static Validator<Long> onlyOne(String name) {
+    return (value, manager, deposit) -> {
+      if (value != 1) {
+        throw new ContractValidateException("This value[" + name + "] is only allowed to be 1");
+      }
+    };
+  }
+
+  private static void validateSupplyAddress(byte[] newSupplyAddress, Manager manager,
+      Deposit deposit) throws ContractValidateException {
+    String readableAddress = StringUtil.createReadableString(newSupplyAddress);
+
+    if (!Wallet.addressValid(newSupplyAddress)) {
+      throw new ContractValidateException("Invalid supply address");
+    }
+
+    if (!Objects.isNull(deposit)) {
+      if (Objects.isNull(deposit.getAccount(newSupplyAddress))) {
+        throw new ContractValidateException(
+            ACCOUNT_EXCEPTION_STR + readableAddress + NOT_EXIST_STR);
+      }
+    } else if (!manager.getAccountStore().has(newSupplyAddress)) {
+      throw new ContractValidateException(
+          ACCOUNT_EXCEPTION_STR + readableAddress + NOT_EXIST_STR);
+    }
+  }
+
+  /**
+   * Check that does not need the value, run before it is decoded.
+   */
+  @FunctionalInterface
+  public interface Gate {
+
+    void check(Manager manager, Deposit deposit) throws ContractValidateException;
+  }
+
+  @FunctionalInterface
+  public interface Validator<T> {
+
+    void validate(T value, Manager manager, Deposit deposit) throws ContractValidateException;
+  }
+
+  public static final class Descriptor<T> {
+
+    private final ChainParameters parameter;
+    private final String key;
+    private final Function<String, T> decoder;
+    private final Function<DynamicPropertiesStore, T> reader;
+    private final Function<T, String> formatter;
+    private final BiConsumer<DynamicPropertiesStore, T> writer;
+    private Gate gate;
+    private Validator<T> validator;
+    private boolean live;
+    private List<ChainParameters> fallsThrough = Collections.emptyList();
+
+    private Descriptor(ChainParameters parameter, String key, Function<String, T> decoder,
+        Function<DynamicPropertiesStore, T> reader, Function<T, String> formatter,
+        BiConsumer<DynamicPropertiesStore, T> writer) {
+      this.parameter = parameter;
+      this.key = key;
+      this.decoder = decoder;
+      this.reader = reader;
+      this.formatter = formatter;
+      this.writer = writer;
+    }
+
+    private Descriptor<T> gate(Gate gate) {
+      this.gate = gate;
+      return this;
+    }
+
+    private Descriptor<T> validator(Validator<T> validator) {
+      this.validator = validator;
+      return this;
+    }
+
+    private Descriptor<T> live() {
+      this.live = true;
+      return this;
+    }
+
+    /**
+     * Parameters the value is also written to, in order.
+     */
+    private Descriptor<T> fallsThrough(ChainParameters... parameters) {
+      this.fallsThrough = Arrays.asList(parameters);
+      return this;
+    }
+
+    public ChainParameters getParameter() {
+      return parameter;
+    }
+
+    /**
+     * Key of the parameter in getchainparameters.
+     */
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * Whether the stored value also moves outside of proposals.
+     */
+    public boolean isLive() {
+      return live;
+    }
+
+    /**
+     * Validates a proposed value. The value is decoded once, and only if the parameter has a
+     * value check.
+     */
+    public void validate(String value, Manager manager, Deposit deposit)
+        throws ContractValidateException {
+      if (gate != null) {
+        gate.check(manager, deposit);
+      }
+      if (validator != null) {
+        validator.validate(decoder.apply(value), manager, deposit);
+      }
+    }
+
+    public String read(DynamicPropertiesStore store) {
+      return formatter.apply(reader.apply(store));
+    }
+
+    /**
+     * Formats a proposed value the way {@link #read} formats the stored one.
+     */
+    public String format(String value) {
+      return formatter.apply(decoder.apply(value));
+    }
+
+    private Runnable prepareWrite(DynamicPropertiesStore store, String value) {
+      T decoded = decoder.apply(value);
+      return () -> writer.accept(store, decoded);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.changyo.core;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import com.changyo.core.config.Parameter;
+import com.changyo.core.db.DynamicPropertiesStore;
+import com.changyo.protos.Protocol.ChainParameters;
+import com.changyo.protos.Protocol.ChainParameters.ChainParameter;
+
+/**
+ * Cached, immutable copy of the chain parameters served by getchainparameters.
+ *
+ * <p>Governed parameters only change during maintenance, when a proposal is applied or the GR
+ * votes are removed, so they are read from the store once and reused until the chain parameter
+ * version moves. Every such write moves the version, see
+ * {@link DynamicPropertiesStore#markChainParametersChanged()}. The version is part of the chain
+ * state, so it is the same on every node, survives a restart and goes back with a fork switch
+ * that reverts a maintenance block. A snapshot is also rebuilt once the next maintenance time
+ * moves, so one read in the middle of a maintenance is not served after it has finished.
+ * Counters that move every block, such as the adaptive energy limit and the total supply, are
+ * read on every call and do not affect the version.</p>
+ */
+@Slf4j(topic = "API")
+public class ChainParameterSnapshot {
+
+  private static final List<Entry> ENTRIES = ImmutableList.<Entry>builder()
+      // proposal parameters 0 to 21
+      .addAll(registered(Parameter.ChainParameters.MAINTENANCE_TIME_INTERVAL,
+          Parameter.ChainParameters.ALLOW_ADAPTIVE_ENERGY))
+      //other chainParameters
+      .add(governed("getTotalEnergyTargetLimit",
+          store -> Long.toString(store.getTotalEnergyTargetLimit())))
+      .add(live("getTotalEnergyAverageUsage",
+          store -> Long.toString(store.getTotalEnergyAverageUsage())))
+      .addAll(registered(Parameter.ChainParameters.UPDATE_ACCOUNT_PERMISSION_FEE,
+          Parameter.ChainParameters.MULTI_SIGN_FEE))
+      .add(live("getCYTTotalSupply",
+          store -> Long.toString(store.getTotalSupply())))
+      .addAll(registered(Parameter.ChainParameters.INCREASE_SUPPLY_ADDRESS,
+          Parameter.ChainParameters.ALLOW_NATIVE_PRECOMPILES))
+      .build();
+
+  private static volatile ChainParameterSnapshot current;
+
+  private final long version;
+  private final long maintenanceTime;
+  // one slot per entry, null for live entries
+  private final List<ChainParameter> governedParameters;
+
+  private ChainParameterSnapshot(long version, long maintenanceTime,
+      List<ChainParameter> governedParameters) {
+    this.version = version;
+    this.maintenanceTime = maintenanceTime;
+    this.governedParameters = governedParameters;
+  }
+
+  public static ChainParameters get(DynamicPropertiesStore store) {
+    ChainParameterSnapshot snapshot = refresh(store);
+    ChainParameters.Builder builder = ChainParameters.newBuilder().setVersion(snapshot.version);
+    for (int i = 0; i < ENTRIES.size(); i++) {
+      ChainParameter parameter = snapshot.governedParameters.get(i);
+      builder.addChainParameter(parameter != null ? parameter : ENTRIES.get(i).read(store));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns only the version when it equals the given version, the full parameter list
+   * otherwise. A different version, older or newer, means the caller's copy is stale.
+   */
+  public static ChainParameters getIfChanged(DynamicPropertiesStore store, long version) {
+    long currentVersion = store.getChainParameterChangeTime();
+    if (currentVersion == version) {
+      return ChainParameters.newBuilder().setVersion(currentVersion).build();
+    }
+    return get(store);
+  }
+
+  private static ChainParameterSnapshot refresh(DynamicPropertiesStore store) {
+    ChainParameterSnapshot snapshot = current;
+    long version = store.getChainParameterChangeTime();
+    long maintenanceTime = store.getNextMaintenanceTime();
+    if (snapshot != null && snapshot.version == version
+        && snapshot.maintenanceTime == maintenanceTime) {
+      return snapshot;
+    }
+
+    synchronized (ChainParameterSnapshot.class) {
+      snapshot = current;
+      if (snapshot != null && snapshot.version == version
+          && snapshot.maintenanceTime == maintenanceTime) {
+        return snapshot;
+      }
+
+      List<ChainParameter> governedParameters = new ArrayList<>(ENTRIES.size());
+      for (Entry entry : ENTRIES) {
+        governedParameters.add(entry.live ? null : entry.read(store));
+      }
+      current = new ChainParameterSnapshot(version, maintenanceTime,
+          Collections.unmodifiableList(governedParameters));
+      logger.debug("Chain parameter snapshot rebuilt, version: {}", version);
+      return current;
+    }
+  }
+
+  /**
+   * Entries for the registered proposal parameters from first to last, in id order.
+   */
+  private static List<Entry> registered(Parameter.ChainParameters first,
+      Parameter.ChainParameters last) {
+    List<Entry> entries = new ArrayList<>();
+    for (int id = first.ordinal(); id <= last.ordinal(); id++) {
+      ChainParameterRegistry.Descriptor<?> descriptor = ChainParameterRegistry.get(id);
+      entries.add(new Entry(descriptor.getKey(), descriptor::read, descriptor.isLive()));
+    }
+    return entries;
+  }
+
+  private static Entry governed(String key, Function<DynamicPropertiesStore, String> value) {
+    return new Entry(key, value, false);
+  }
+
+  private static Entry live(String key, Function<DynamicPropertiesStore, String> value) {
+    return new Entry(key, value, true);
+  }
+
+  private static class Entry {
+
+    private final String key;
+    private final Function<DynamicPropertiesStore, String> value;
+    private final boolean live;
+
+    Entry(String key, Function<DynamicPropertiesStore, String> value, boolean live) {
+      this.key = key;
+      this.value = value;
+      this.live = live;
+    }
+
+    ChainParameter read(DynamicPropertiesStore store) {
+      return ChainParameter.newBuilder().setKey(key).setValue(value.apply(store)).build();
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package com.changyo.core;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import com.changyo.common.runtime.Runtime;
+import com.changyo.common.runtime.RuntimeImpl;
+import com.changyo.common.runtime.config.VMConfig;
+import com.changyo.common.runtime.vm.program.invoke.ProgramInvokeFactory;
+import com.changyo.common.runtime.vm.program.invoke.ProgramInvokeFactoryImpl;
+import com.changyo.common.storage.DepositImpl;
+import com.changyo.core.capsule.BlockCapsule;
+import com.changyo.core.capsule.BlockCapsule.BlockId;
+import com.changyo.core.capsule.TransactionCapsule;
+import com.changyo.core.config.args.Args;
+import com.changyo.core.db.Manager;
+import com.changyo.core.exception.ContractExeException;
+import com.changyo.core.exception.ContractValidateException;
+import com.changyo.core.exception.HeaderNotFound;
+import com.changyo.core.exception.VMIllegalException;
+import com.changyo.protos.Protocol.Block;
+
+/**
+ * Runs constant (view) contract calls with bounded parallelism.
+ *
+ * <p>A call runs on the thread that asked for it; at most vm.constantCallThreadNum calls run at
+ * once, at most vm.constantCallQueueSize more wait for a slot, and a caller waits at most
+ * vm.constantCallTimeoutInMs for one. Execution itself is bounded inside the VM, which stops a
+ * call with OUT_OF_TIME once it has used maxCpuTimeOfOneTx of CPU time, so a slow contract
+ * releases its slot instead of holding it past the limit.</p>
+ *
+ * <p>The head block and the VM switches are loaded once per head block and shared by every call
+ * made against it. The revoking store offers no read snapshot, so a call whose head block moved
+ * while it ran is run once more against the new head, which makes the result match the block
+ * it is reported against unless the head moves twice. Throughput and p99 latency are logged
+ * once a minute.</p>
+ */
+@Slf4j(topic = "API")
+@Component
+public class ConstantCallExecutor {
+
+  // one latency bucket per millisecond, anything slower lands in the last bucket
+  private static final int MAX_LATENCY_BUCKETS = 10_000;
+  private static final long REPORT_INTERVAL_MS = 60_000L;
+
+  @Autowired
+  private Manager dbManager;
+
+  // stateless, shared by every call
+  private final ProgramInvokeFactory programInvokeFactory = new ProgramInvokeFactoryImpl();
+
+  private Semaphore slots;
+
+  private int queueSize;
+
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  private long timeoutInMs;
+
+  private volatile HeadSnapshot head;
+
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private AtomicLongArray latencyBuckets;
+  private long lastReportTime = System.currentTimeMillis();
+
+  @PostConstruct
+  public void init() {
+    Args args = Args.getInstance();
+    slots = new Semaphore(Math.max(1, args.getConstantCallThreadNum()));
+    queueSize = Math.max(1, args.getConstantCallQueueSize());
+    timeoutInMs = args.getConstantCallTimeoutInMs();
+    latencyBuckets = new AtomicLongArray(
+        (int) Math.min(Math.max(timeoutInMs, 0) + 2, MAX_LATENCY_BUCKETS));
+  }
+
+  /**
+   * Executes a constant call against the current head block and returns the finished runtime.
+   */
+  public Runtime call(TransactionCapsule trxCap)
+      throws ContractValidateException, ContractExeException, HeaderNotFound, VMIllegalException {
+    long start = System.nanoTime();
+    acquire();
+    try {
+      HeadSnapshot snapshot = getHead();
+      Runtime runtime = execute(trxCap, snapshot.block);
+      if (!snapshot.blockId.equals(dbManager.getHeadBlockId())) {
+        runtime = execute(trxCap, getHead().block);
+      }
+      return runtime;
+    } finally {
+      slots.release();
+      record(System.nanoTime() - start);
+    }
+  }
+
+  private void acquire() throws ContractValidateException, ContractExeException {
+    if (slots.tryAcquire()) {
+      return;
+    }
+    if (waiting.incrementAndGet() > queueSize) {
+      waiting.decrementAndGet();
+      rejected.increment();
+      throw new ContractValidateException("too many constant calls, please retry later");
+    }
+    try {
+      if (!slots.tryAcquire(timeoutInMs, TimeUnit.MILLISECONDS)) {
+        timeouts.increment();
+        throw new ContractExeException(
+            "constant call timeout, no free slot within " + timeoutInMs + " ms");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ContractExeException("constant call interrupted");
+    } finally {
+      waiting.decrementAndGet();
+    }
+  }
+
+  private Runtime execute(TransactionCapsule trxCap, Block headBlock)
+      throws ContractValidateException, ContractExeException, VMIllegalException {
+    DepositImpl deposit = DepositImpl.createRoot(dbManager);
+    Runtime runtime = new RuntimeImpl(trxCap.getInstance(), new BlockCapsule(headBlock), deposit,
+        programInvokeFactory, true);
+    runtime.execute();
+    runtime.go();
+    runtime.finalization();
+    return runtime;
+  }
+
+  private HeadSnapshot getHead() throws HeaderNotFound {
+    HeadSnapshot snapshot = head;
+    if (snapshot != null && snapshot.blockId.equals(dbManager.getHeadBlockId())) {
+      return snapshot;
+    }
+
+    List<BlockCapsule> blockCapsuleList = dbManager.getBlockStore().getBlockByLatestNum(1);
+    if (CollectionUtils.isEmpty(blockCapsuleList)) {
+      throw new HeaderNotFound("latest block not found");
+    }
+    BlockCapsule headBlock = blockCapsuleList.get(0);
+
+    VMConfig.initVmHardFork();
+    VMConfig.initAllowTvmTransferTrc10(
+        dbManager.getDynamicPropertiesStore().getAllowTvmTransferTrc10());
+    VMConfig.initAllowMultiSign(dbManager.getDynamicPropertiesStore().getAllowMultiSign());
+
+    snapshot = new HeadSnapshot(headBlock.getBlockId(), headBlock.getInstance());
+    head = snapshot;
+    report();
+    return snapshot;
+  }
+
+  private void record(long latencyInNanos) {
+    long bucket = Math.min(TimeUnit.NANOSECONDS.toMillis(latencyInNanos),
+        latencyBuckets.length() - 1);
+    latencyBuckets.incrementAndGet((int) bucket);
+  }
+
+  private synchronized void report() {
+    long now = System.currentTimeMillis();
+    if (now - lastReportTime < REPORT_INTERVAL_MS) {
+      return;
+    }
+    long[] counts = new long[latencyBuckets.length()];
+    long callCount = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = latencyBuckets.getAndSet(i, 0);
+      callCount += counts[i];
+    }
+    if (callCount > 0) {
+      long target = (long) Math.ceil(callCount * 0.99);
+      int p99 = 0;
+      long seen = counts[0];
+      while (seen < target) {
+        seen += counts[++p99];
+      }
+      logger.info("Constant calls: {}/s, p99: {} ms, rejected: {}, timeout: {}",
+          callCount * 1000 / (now - lastReportTime), p99, rejected.sumThenReset(),
+          timeouts.sumThenReset());
+    }
+    lastReportTime = now;
+  }
+
+  private static class HeadSnapshot {
+
+    private final BlockId blockId;
+    private final Block block;
+
+    HeadSnapshot(BlockId blockId, Block block) {
+      this.blockId = blockId;
+      this.block = block;
+    }
+  }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Component;
 import com.changyo.common.utils.ByteArray;
 import com.changyo.common.utils.Sha256Hash;
 import com.changyo.core.capsule.BytesCapsule;
+import com.changyo.core.capsule.PendingProposalIndexCapsule;
 import com.changyo.core.config.Parameter;
 import com.changyo.core.config.Parameter.ChainConstant;
 import com.changyo.core.config.args.Args;
@@ -159,9 +160,21 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   //Used only for token updates, once，value is {0,1}
   private static final byte[] TOKEN_UPDATE_DONE = "TOKEN_UPDATE_DONE".getBytes();
 
+  private static final byte[] ASSET_ISSUE_OWNER_INDEX_DONE = "ASSET_ISSUE_OWNER_INDEX_DONE"
+      .getBytes();
+
+  private static final byte[] PENDING_PROPOSAL_INDEX = "PENDING_PROPOSAL_INDEX".getBytes();
+
+  //version of the governed chain parameters, moved by every write to one of them
+  private static final byte[] CHAIN_PARAMETER_CHANGE_TIME = "CHAIN_PARAMETER_CHANGE_TIME"
+      .getBytes();
+
   //This value is only allowed to be 0, 1, -1
   private static final byte[] ALLOW_TVM_TRANSFER_TRC10 = "ALLOW_TVM_TRANSFER_TRC10".getBytes();
 
+  //This value is only allowed to be 0, 1
+  private static final byte[] ALLOW_NATIVE_PRECOMPILES = "ALLOW_NATIVE_PRECOMPILES".getBytes();
+
   private static final byte[] AVAILABLE_CONTRACT_TYPE = "AVAILABLE_CONTRACT_TYPE".getBytes();
   private static final byte[] ACTIVE_DEFAULT_OPERATIONS = "ACTIVE_DEFAULT_OPERATIONS".getBytes();
 
@@ -246,6 +259,12 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
       this.saveTokenUpdateDone(0);
     }
 
+    try {
+      this.getAssetIssueOwnerIndexDone();
+    } catch (IllegalArgumentException e) {
+      this.saveAssetIssueOwnerIndexDone(0);
+    }
+
     try {
       this.getMaxFrozenTime();
     } catch (IllegalArgumentException e) {
@@ -492,6 +511,12 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
       this.saveAllowTvmTransferTrc10(Args.getInstance().getAllowTvmTransferTrc10());
     }
 
+    try {
+      this.getAllowNativePrecompiles();
+    } catch (IllegalArgumentException e) {
+      this.saveAllowNativePrecompiles(0);
+    }
+
     try {
       this.getAvailableContractType();
     } catch (IllegalArgumentException e) {
@@ -634,6 +659,19 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
             () -> new IllegalArgumentException("not found TOKEN_UPDATE_DONE"));
   }
 
+  public void saveAssetIssueOwnerIndexDone(long num) {
+    this.put(ASSET_ISSUE_OWNER_INDEX_DONE,
+        new BytesCapsule(ByteArray.fromLong(num)));
+  }
+
+  public long getAssetIssueOwnerIndexDone() {
+    return Optional.ofNullable(getUnchecked(ASSET_ISSUE_OWNER_INDEX_DONE))
+        .map(BytesCapsule::getData)
+        .map(ByteArray::toLong)
+        .orElseThrow(
+            () -> new IllegalArgumentException("not found ASSET_ISSUE_OWNER_INDEX_DONE"));
+  }
+
 
   public void saveBlockFilledSlotsIndex(int blockFilledSlotsIndex) {
     logger.debug("blockFilledSlotsIndex:" + blockFilledSlotsIndex);
@@ -1225,6 +1263,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   public void saveRemoveThePowerOfTheGr(long rate) {
     this.put(REMOVE_THE_POWER_OF_THE_GR,
         new BytesCapsule(ByteArray.fromLong(rate)));
+    // also set to -1 by the maintenance that removes the GR votes, not only by a proposal
+    this.markChainParametersChanged();
   }
 
   public long getRemoveThePowerOfTheGr() {
@@ -1274,6 +1314,19 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
             () -> new IllegalArgumentException("not found ALLOW_TVM_TRANSFER_TRC10"));
   }
 
+  public void saveAllowNativePrecompiles(long value) {
+    this.put(ALLOW_NATIVE_PRECOMPILES,
+        new BytesCapsule(ByteArray.fromLong(value)));
+  }
+
+  public long getAllowNativePrecompiles() {
+    return Optional.ofNullable(getUnchecked(ALLOW_NATIVE_PRECOMPILES))
+        .map(BytesCapsule::getData)
+        .map(ByteArray::toLong)
+        .orElseThrow(
+            () -> new IllegalArgumentException("not found ALLOW_NATIVE_PRECOMPILES"));
+  }
+
   public void saveAvailableContractType(byte[] value) {
     this.put(AVAILABLE_CONTRACT_TYPE,
         new BytesCapsule(value));
@@ -1430,6 +1483,47 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
             () -> new IllegalArgumentException("not found latest PROPOSAL_NUM"));
   }
 
+  public void savePendingProposalIndex(PendingProposalIndexCapsule index) {
+    this.put(PENDING_PROPOSAL_INDEX, new BytesCapsule(index.getData()));
+  }
+
+  /**
+   * Returns null until the index has been built at the first maintenance.
+   */
+  public PendingProposalIndexCapsule getPendingProposalIndex() {
+    return Optional.ofNullable(getUnchecked(PENDING_PROPOSAL_INDEX))
+        .map(BytesCapsule::getData)
+        .map(PendingProposalIndexCapsule::new)
+        .orElse(null);
+  }
+
+  public void saveChainParameterChangeTime(long time) {
+    this.put(CHAIN_PARAMETER_CHANGE_TIME, new BytesCapsule(ByteArray.fromLong(time)));
+  }
+
+  /**
+   * Moves the chain parameter version after a governed parameter was written. The version is
+   * the current maintenance time, or one more than the previous version if that is not larger,
+   * so every write within one maintenance moves it again.
+   */
+  public void markChainParametersChanged() {
+    long maintenanceTime = Optional.ofNullable(getUnchecked(NEXT_MAINTENANCE_TIME))
+        .map(BytesCapsule::getData)
+        .map(ByteArray::toLong)
+        .orElse(0L);
+    saveChainParameterChangeTime(Math.max(maintenanceTime, getChainParameterChangeTime() + 1));
+  }
+
+  /**
+   * Returns 0 until a governed parameter has been written on a node running this version.
+   */
+  public long getChainParameterChangeTime() {
+    return Optional.ofNullable(getUnchecked(CHAIN_PARAMETER_CHANGE_TIME))
+        .map(BytesCapsule::getData)
+        .map(ByteArray::toLong)
+        .orElse(0L);
+  }
+
   public void saveLatestExchangeNum(long number) {
     this.put(LATEST_EXCHANGE_NUM, new BytesCapsule(ByteArray.fromLong(number)));
   }
@@ -0,0 +1,76 @@
+package com.changyo.core.net;
+
+import com.changyo.core.net.peer.PeerConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the number of active peers, and of active peers that are in sync with us in both
+ * directions, so that admission checks can read them without walking the peer collection.
+ *
+ * <p>The counts are maintained from peer events: the peer layer calls
+ * {@link #onPeerConnected}, {@link #onPeerDisconnected} and, whenever needSyncFromUs or
+ * needSyncFromPeer changes, {@link #onSyncStateChanged}. Each peer's last known state is kept,
+ * so a repeated or out-of-order event never counts a peer twice.</p>
+ */
+@Slf4j(topic = "net")
+@Component
+public class EffectivePeerCounter {
+
+  // true while the peer is in sync in both directions
+  private final Map<PeerConnection, Boolean> peers = new ConcurrentHashMap<>();
+
+  private final AtomicInteger activePeerCount = new AtomicInteger();
+  private final AtomicInteger effectivePeerCount = new AtomicInteger();
+
+  /**
+   * Called once the handshake with peer has completed and it has joined the active peers.
+   */
+  public void onPeerConnected(PeerConnection peer) {
+    update(peer, true);
+  }
+
+  /**
+   * Called when peer has left the active peers.
+   */
+  public void onPeerDisconnected(PeerConnection peer) {
+    update(peer, false);
+  }
+
+  /**
+   * Called after needSyncFromUs or needSyncFromPeer of an active peer has changed.
+   */
+  public void onSyncStateChanged(PeerConnection peer) {
+    if (peers.containsKey(peer)) {
+      update(peer, true);
+    }
+  }
+
+  private void update(PeerConnection peer, boolean active) {
+    peers.compute(peer, (key, wasEffective) -> {
+      boolean effective = active && !peer.isNeedSyncFromUs() && !peer.isNeedSyncFromPeer();
+      if (wasEffective == null && active) {
+        activePeerCount.incrementAndGet();
+      } else if (wasEffective != null && !active) {
+        activePeerCount.decrementAndGet();
+      }
+      if (wasEffective != null && wasEffective && !effective) {
+        effectivePeerCount.decrementAndGet();
+      } else if ((wasEffective == null || !wasEffective) && effective) {
+        effectivePeerCount.incrementAndGet();
+      }
+      return active ? effective : null;
+    });
+  }
+
+  public int getActivePeerCount() {
+    return activePeerCount.get();
+  }
+
+  public int getEffectivePeerCount() {
+    return effectivePeerCount.get();
+  }
+}
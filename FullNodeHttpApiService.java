@@ -1,10 +1,15 @@
 package com.changyo.core.services.http;
 
 import com.changyo.core.config.args.Args;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.servlet.ServletMapping;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import com.changyo.common.application.Service;
@@ -161,6 +166,32 @@ public class FullNodeHttpApiService implements Service {
   private CalFeeServlet calFeeServlet;
   @Autowired
   private ModifySupplyServlet modifySupplyServlet;
+  @Autowired
+  private GetTransactionInfoByIdsServlet getTransactionInfoByIdsServlet;
+  @Autowired
+  private GetAccountsServlet getAccountsServlet;
+  @Autowired
+  private GetChainParametersIfChangedServlet getChainParametersIfChangedServlet;
+  @Autowired
+  private BroadcastTransactionsServlet broadcastTransactionsServlet;
+  @Autowired
+  private GetBlockStatsByLimitNextServlet getBlockStatsByLimitNextServlet;
+  @Autowired
+  private StreamBlockByLimitNextServlet streamBlockByLimitNextServlet;
+  @Autowired
+  private ProposalDryRunServlet proposalDryRunServlet;
+  @Autowired
+  private GetPrecompileProfileServlet getPrecompileProfileServlet;
+  @Autowired
+  private BatchServlet batchServlet;
+  @Autowired
+  private ListWitnessesByCursorServlet listWitnessesByCursorServlet;
+  @Autowired
+  private ListProposalsByCursorServlet listProposalsByCursorServlet;
+  @Autowired
+  private ListExchangesByCursorServlet listExchangesByCursorServlet;
+  @Autowired
+  private GetAssetIssueListByCursorServlet getAssetIssueListByCursorServlet;
   @Override
   public void init() {
 
@@ -179,8 +210,11 @@ public class FullNodeHttpApiService implements Service {
       server.setHandler(context);
 
       context.addServlet(new ServletHolder(getAccountServlet), "/getaccount");
+      context.addServlet(new ServletHolder(getAccountsServlet), "/getaccounts");
       context.addServlet(new ServletHolder(transferServlet), "/createtransaction");
       context.addServlet(new ServletHolder(broadcastServlet), "/broadcasttransaction");
+      context.addServlet(
+          new ServletHolder(broadcastTransactionsServlet), "/broadcasttransactions");
       context.addServlet(new ServletHolder(transactionSignServlet), "/gettransactionsign");
       context.addServlet(new ServletHolder(updateAccountServlet), "/updateaccount");
       context.addServlet(new ServletHolder(voteWitnessAccountServlet), "/votewitnessaccount");
@@ -208,9 +242,18 @@ public class FullNodeHttpApiService implements Service {
       context.addServlet(new ServletHolder(getBlockByIdServlet), "/getblockbyid");
       context.addServlet(new ServletHolder(getBlockByLimitNextServlet), "/getblockbylimitnext");
       context.addServlet(new ServletHolder(getBlockByLatestNumServlet), "/getblockbylatestnum");
+      context.addServlet(
+          new ServletHolder(getBlockStatsByLimitNextServlet), "/getblockstatsbylimitnext");
+      context.addServlet(
+          new ServletHolder(streamBlockByLimitNextServlet), "/streamblockbylimitnext");
+      context.addServlet(new ServletHolder(proposalDryRunServlet), "/proposaldryrun");
+      context.addServlet(new ServletHolder(getPrecompileProfileServlet),
+          "/getprecompileprofile");
       context.addServlet(new ServletHolder(getTransactionByIdServlet), "/gettransactionbyid");
       context.addServlet(
           new ServletHolder(getTransactionInfoByIdServlet), "/gettransactioninfobyid");
+      context.addServlet(
+          new ServletHolder(getTransactionInfoByIdsServlet), "/gettransactioninfobyids");
       context.addServlet(
           new ServletHolder(getTransactionCountByBlockNumServlet),
           "/gettransactioncountbyblocknum");
@@ -222,6 +265,14 @@ public class FullNodeHttpApiService implements Service {
           new ServletHolder(getPaginatedProposalListServlet), "/getpaginatedproposallist");
       context.addServlet(
           new ServletHolder(getPaginatedExchangeListServlet), "/getpaginatedexchangelist");
+      context.addServlet(
+          new ServletHolder(listWitnessesByCursorServlet), "/listwitnessesbycursor");
+      context.addServlet(
+          new ServletHolder(listProposalsByCursorServlet), "/listproposalsbycursor");
+      context.addServlet(
+          new ServletHolder(listExchangesByCursorServlet), "/listexchangesbycursor");
+      context.addServlet(
+          new ServletHolder(getAssetIssueListByCursorServlet), "/getassetissuelistbycursor");
       context.addServlet(new ServletHolder(totalTransactionServlet), "/totaltransaction");
       context.addServlet(
           new ServletHolder(getNextMaintenanceTimeServlet), "/getnextmaintenancetime");
@@ -248,6 +299,8 @@ public class FullNodeHttpApiService implements Service {
       context.addServlet(new ServletHolder(getExchangeByIdServlet), "/getexchangebyid");
       context.addServlet(new ServletHolder(listExchangesServlet), "/listexchanges");
       context.addServlet(new ServletHolder(getChainParametersServlet), "/getchainparameters");
+      context.addServlet(new ServletHolder(getChainParametersIfChangedServlet),
+          "/getchainparametersifchanged");
       context.addServlet(new ServletHolder(getAccountResourceServlet), "/getaccountresource");
       context.addServlet(new ServletHolder(addTransactionSignServlet), "/addtransactionsign");
       context.addServlet(new ServletHolder(getTransactionSignWeightServlet), "/getsignweight");
@@ -263,6 +316,8 @@ public class FullNodeHttpApiService implements Service {
           "/getdelegatedresourceaccountindex");
       context.addServlet(new ServletHolder(calFeeServlet), "/calfee");
 	  context.addServlet(new ServletHolder(modifySupplyServlet), "/modifysupply");
+      context.addServlet(new ServletHolder(batchServlet), "/batch");
+      registerBatchRoutes(context);
 
       server.start();
     } catch (Exception e) {
@@ -270,6 +325,18 @@ public class FullNodeHttpApiService implements Service {
     }
   }
 
+  private void registerBatchRoutes(ServletContextHandler context) throws ServletException {
+    ServletHandler handler = context.getServletHandler();
+    for (ServletMapping mapping : handler.getServletMappings()) {
+      Servlet servlet = handler.getServlet(mapping.getServletName()).getServlet();
+      if (servlet instanceof HttpServlet) {
+        for (String path : mapping.getPathSpecs()) {
+          batchServlet.register(path, (HttpServlet) servlet);
+        }
+      }
+    }
+  }
+
   @Override
   public void stop() {
     try {
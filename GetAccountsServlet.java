@@ -0,0 +1,49 @@
+package com.changyo.core.services.http;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.api.GrpcAPI.AccountList;
+import com.changyo.api.GrpcAPI.BytesListMessage;
+import com.changyo.core.Wallet;
+
+
+@Component
+@Slf4j(topic = "API")
+public class GetAccountsServlet extends HttpServlet {
+
+  @Autowired
+  private Wallet wallet;
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      String input = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(input);
+      BytesListMessage.Builder build = BytesListMessage.newBuilder();
+      JsonFormat.merge(input, build);
+      AccountList reply = wallet.getAccounts(build.getValueList());
+      if (reply != null) {
+        response.getWriter().println(JsonFormat.printToString(reply));
+      } else {
+        response.getWriter().println("{}");
+      }
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+}
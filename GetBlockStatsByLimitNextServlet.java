@@ -0,0 +1,65 @@
+package com.changyo.core.services.http;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.api.GrpcAPI.BlockLimit;
+import com.changyo.core.Wallet;
+import com.changyo.core.db.BlockStatIndex.BlockStat;
+
+
+@Component
+@Slf4j(topic = "API")
+public class GetBlockStatsByLimitNextServlet extends HttpServlet {
+
+  @Autowired
+  private Wallet wallet;
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      String input = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(input);
+      BlockLimit.Builder build = BlockLimit.newBuilder();
+      JsonFormat.merge(input, build);
+      List<BlockStat> stats = wallet
+          .getBlockStatsByLimitNext(build.getStartNum(), build.getEndNum());
+      if (stats == null) {
+        response.getWriter().println("{}");
+        return;
+      }
+      JSONArray jsonStats = new JSONArray();
+      for (BlockStat stat : stats) {
+        JSONObject jsonStat = new JSONObject();
+        jsonStat.put("blockNum", stat.getBlockNum());
+        jsonStat.put("txCount", stat.getTxCount());
+        jsonStat.put("blockSize", stat.getBlockSize());
+        jsonStat.put("totalFee", stat.getTotalFee());
+        jsonStat.put("feeKnown", stat.isFeeKnown());
+        jsonStats.add(jsonStat);
+      }
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put("blockStats", jsonStats);
+      response.getWriter().println(jsonObject.toJSONString());
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.changyo.core.services.http;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.api.GrpcAPI.NumberMessage;
+import com.changyo.core.Wallet;
+
+
+@Component
+@Slf4j(topic = "API")
+public class GetChainParametersIfChangedServlet extends HttpServlet {
+
+  @Autowired
+  private Wallet wallet;
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      long version = Long.parseLong(request.getParameter("num"));
+      response.getWriter()
+          .println(JsonFormat.printToString(wallet.getChainParametersIfChanged(version)));
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      String input = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(input);
+      NumberMessage.Builder build = NumberMessage.newBuilder();
+      JsonFormat.merge(input, build);
+      response.getWriter().println(
+          JsonFormat.printToString(wallet.getChainParametersIfChanged(build.getNum())));
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.changyo.core.services.http;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.google.common.cache.CacheStats;
+import java.io.IOException;
+import java.util.Map;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import com.changyo.common.runtime.vm.PrecompiledProfiler;
+import com.changyo.common.runtime.vm.PrecompiledProfiler.ProfileSnapshot;
+import com.changyo.common.runtime.vm.PrecompiledResultCache;
+
+
+@Component
+@Slf4j(topic = "API")
+public class GetPrecompileProfileServlet extends HttpServlet {
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      JSONArray jsonProfiles = new JSONArray();
+      for (ProfileSnapshot profile : PrecompiledProfiler.getProfiles()) {
+        JSONObject jsonProfile = new JSONObject();
+        jsonProfile.put("address", "0x" + Integer.toHexString(profile.getAddress()));
+        jsonProfile.put("name", profile.getName());
+        jsonProfile.put("count", profile.getCount());
+        jsonProfile.put("failures", profile.getFailures());
+        jsonProfile.put("inputBytes", profile.getInputBytes());
+        jsonProfile.put("energy", profile.getEnergy());
+        jsonProfile.put("sampledCount", profile.getSampledCount());
+        jsonProfile.put("sampledEnergy", profile.getSampledEnergy());
+        jsonProfile.put("totalNanos", profile.getTotalNanos());
+        jsonProfile.put("maxNanos", profile.getMaxNanos());
+        jsonProfile.put("nanosPerEnergy", profile.getNanosPerEnergy());
+        jsonProfiles.add(jsonProfile);
+      }
+
+      JSONObject jsonCaches = new JSONObject();
+      for (Map.Entry<String, CacheStats> entry : PrecompiledResultCache.getStats().entrySet()) {
+        CacheStats stats = entry.getValue();
+        JSONObject jsonCache = new JSONObject();
+        jsonCache.put("hitCount", stats.hitCount());
+        jsonCache.put("missCount", stats.missCount());
+        jsonCache.put("hitRate", stats.hitRate());
+        jsonCaches.put(entry.getKey(), jsonCache);
+      }
+
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put("enabled", PrecompiledProfiler.isEnabled());
+      jsonObject.put("profiles", jsonProfiles);
+      jsonObject.put("caches", jsonCaches);
+      response.getWriter().println(jsonObject.toJSONString());
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+}
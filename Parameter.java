@@ -61,6 +61,8 @@ public interface Parameter {
     int ASSET_ISSUE_COUNT_LIMIT_MAX = 1000;
     int PROPOSAL_COUNT_LIMIT_MAX = 1000;
     int EXCHANGE_COUNT_LIMIT_MAX = 1000;
+    int WITNESS_COUNT_LIMIT_MAX = 1000;
+    int ACCOUNT_COUNT_LIMIT_MAX = 1000;
   }
 
   interface AdaptiveResourceLimitConstants {
@@ -100,6 +102,7 @@ public interface Parameter {
     MULTI_SIGN_FEE, // 1, 23
     INCREASE_SUPPLY_ADDRESS, //24
     DECREASE_SUPPLY_ADDRESS, //25
+    ALLOW_NATIVE_PRECOMPILES, // 1, 26
 //    CYT_TOTAL_SUPPLY,
 //    ONE_DAY_NET_LIMIT,
 //    MAX_FROZEN_TIME,
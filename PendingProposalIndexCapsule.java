@@ -0,0 +1,121 @@
+package com.changyo.core.capsule;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import com.changyo.protos.Protocol.PendingProposalIndex;
+import com.changyo.protos.Protocol.PendingProposalIndex.Entry;
+
+@Slf4j(topic = "capsule")
+public class PendingProposalIndexCapsule implements ProtoCapsule<PendingProposalIndex> {
+
+  private PendingProposalIndex pendingProposalIndex;
+
+  public PendingProposalIndexCapsule(final PendingProposalIndex pendingProposalIndex) {
+    this.pendingProposalIndex = pendingProposalIndex;
+  }
+
+  public PendingProposalIndexCapsule(final byte[] data) {
+    try {
+      this.pendingProposalIndex = PendingProposalIndex.parseFrom(data);
+    } catch (InvalidProtocolBufferException e) {
+      logger.debug(e.getMessage(), e);
+    }
+  }
+
+  public PendingProposalIndexCapsule() {
+    this.pendingProposalIndex = PendingProposalIndex.getDefaultInstance();
+  }
+
+  public long getIndexedProposalNum() {
+    return this.pendingProposalIndex.getIndexedProposalNum();
+  }
+
+  public void setIndexedProposalNum(long num) {
+    this.pendingProposalIndex = this.pendingProposalIndex.toBuilder()
+        .setIndexedProposalNum(num)
+        .build();
+  }
+
+  public long getProcessedProposalNum() {
+    return this.pendingProposalIndex.getProcessedProposalNum();
+  }
+
+  public void setProcessedProposalNum(long num) {
+    this.pendingProposalIndex = this.pendingProposalIndex.toBuilder()
+        .setProcessedProposalNum(num)
+        .build();
+  }
+
+  public int size() {
+    return this.pendingProposalIndex.getEntriesCount();
+  }
+
+  /**
+   * Inserts a proposal at its place in (expirationTime, proposalId) order.
+   */
+  public void add(long proposalId, long expirationTime) {
+    List<Entry> entries = this.pendingProposalIndex.getEntriesList();
+    int low = 0;
+    int high = entries.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      Entry entry = entries.get(mid);
+      if (entry.getExpirationTime() < expirationTime
+          || (entry.getExpirationTime() == expirationTime && entry.getProposalId() < proposalId)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    if (low < entries.size() && entries.get(low).getProposalId() == proposalId
+        && entries.get(low).getExpirationTime() == expirationTime) {
+      return;
+    }
+    Entry entry = Entry.newBuilder()
+        .setExpirationTime(expirationTime)
+        .setProposalId(proposalId)
+        .build();
+    List<Entry> updated = new ArrayList<>(entries.size() + 1);
+    updated.addAll(entries.subList(0, low));
+    updated.add(entry);
+    updated.addAll(entries.subList(low, entries.size()));
+    this.pendingProposalIndex = this.pendingProposalIndex.toBuilder()
+        .clearEntries()
+        .addAllEntries(updated)
+        .build();
+  }
+
+  /**
+   * Removes and returns the ids of the proposals that have expired at the given time, the same
+   * test as ProposalCapsule.hasExpired.
+   */
+  public List<Long> pollExpired(long time) {
+    List<Entry> entries = this.pendingProposalIndex.getEntriesList();
+    List<Long> expired = new ArrayList<>();
+    int count = 0;
+    while (count < entries.size() && entries.get(count).getExpirationTime() <= time) {
+      expired.add(entries.get(count).getProposalId());
+      count++;
+    }
+    if (count > 0) {
+      this.pendingProposalIndex = this.pendingProposalIndex.toBuilder()
+          .clearEntries()
+          .addAllEntries(entries.subList(count, entries.size()))
+          .build();
+    }
+    return expired;
+  }
+
+  @Override
+  public byte[] getData() {
+    return this.pendingProposalIndex.toByteArray();
+  }
+
+  @Override
+  public PendingProposalIndex getInstance() {
+    return this.pendingProposalIndex;
+  }
+
+}
@@ -33,10 +33,13 @@ import com.changyo.core.exception.ContractValidateException;
 import com.google.common.primitives.Longs;
 import com.google.protobuf.ByteString;
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.spongycastle.util.encoders.Hex;
@@ -72,137 +75,98 @@ import com.changyo.protos.Protocol.Transaction.Contract.ContractType;
 @Slf4j(topic = "VM")
 public class PrecompiledContracts {
 
-  private static final ECRecover ecRecover = new ECRecover();
-  private static final Sha256 sha256 = new Sha256();
-  private static final Ripempd160 ripempd160 = new Ripempd160();
-  private static final Identity identity = new Identity();
-  private static final ModExp modExp = new ModExp();
-  private static final BN128Addition altBN128Add = new BN128Addition();
-  private static final BN128Multiplication altBN128Mul = new BN128Multiplication();
-  private static final BN128Pairing altBN128Pairing = new BN128Pairing();
-//  private static final VoteWitnessNative voteContract = new VoteWitnessNative();
-//  private static final FreezeBalanceNative freezeBalance = new FreezeBalanceNative();
-//  private static final UnfreezeBalanceNative unFreezeBalance = new UnfreezeBalanceNative();
-//  private static final WithdrawBalanceNative withdrawBalance = new WithdrawBalanceNative();
-//  private static final ProposalApproveNative proposalApprove = new ProposalApproveNative();
-//  private static final ProposalCreateNative proposalCreate = new ProposalCreateNative();
-//  private static final ProposalDeleteNative proposalDelete = new ProposalDeleteNative();
-//  private static final ConvertFromTronBytesAddressNative convertFromTronBytesAddress = new ConvertFromTronBytesAddressNative();
-//  private static final ConvertFromTronBase58AddressNative convertFromTronBase58Address = new ConvertFromTronBase58AddressNative();
-//  private static final TransferAssetNative transferAsset = new TransferAssetNative();
-//  private static final GetTransferAssetNative getTransferAssetAmount =  new GetTransferAssetNative();
+  private static final ThreadLocal<MessageDigest> sha256Digest =
+      ThreadLocal.withInitial(Sha256Hash::newDigest);
 
   private static final ECKey addressCheckECKey = new ECKey();
   private static final String addressCheckECKeyAddress = Wallet
       .encode58Check(addressCheckECKey.getAddress());
 
-
-  private static final DataWord ecRecoverAddr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000001");
-  private static final DataWord sha256Addr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000002");
-  private static final DataWord ripempd160Addr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000003");
-  private static final DataWord identityAddr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000004");
-  private static final DataWord modExpAddr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000005");
-  private static final DataWord altBN128AddAddr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000006");
-  private static final DataWord altBN128MulAddr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000007");
-  private static final DataWord altBN128PairingAddr = new DataWord(
-      "0000000000000000000000000000000000000000000000000000000000000008");
-//  private static final DataWord voteContractAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010001");
-  //  private static final DataWord freezeBalanceAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010002");
-//  private static final DataWord unFreezeBalanceAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010003");
-//  private static final DataWord withdrawBalanceAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010004");
-//  private static final DataWord proposalApproveAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010005");
-//  private static final DataWord proposalCreateAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010006");
-//  private static final DataWord proposalDeleteAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010007");
-//  private static final DataWord convertFromTronBytesAddressAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010008");
-//  private static final DataWord convertFromTronBase58AddressAddr = new DataWord(
-//      "0000000000000000000000000000000000000000000000000000000000010009");
-//  private static final DataWord transferAssetAddr = new DataWord(
-//      "000000000000000000000000000000000000000000000000000000000001000a");
-//  private static final DataWord getTransferAssetAmountAddr = new DataWord(
-//      "000000000000000000000000000000000000000000000000000000000001000b");
+  // indexed by address, 0x01 - 0x08; address 0 is not a precompile
+  private static final List<Supplier<PrecompiledContract>> standardContracts =
+      Arrays.asList(
+          null,
+          ECRecover::new,
+          Sha256::new,
+          Ripempd160::new,
+          Identity::new,
+          // Byzantium precompiles
+          ModExp::new,
+          BN128Addition::new,
+          BN128Multiplication::new,
+          BN128Pairing::new);
+  private static final int IDENTITY_INDEX = 4;
+
+  // native contracts live at 0x010000 + index, once ALLOW_NATIVE_PRECOMPILES is approved
+  private static final int NATIVE_ADDRESS_PREFIX = 0x01;
+  private static final List<Supplier<PrecompiledContract>> nativeContracts =
+      Arrays.asList(
+          null,
+          VoteWitnessNative::new,
+          FreezeBalanceNative::new,
+          UnfreezeBalanceNative::new,
+          WithdrawBalanceNative::new,
+          ProposalApproveNative::new,
+          ProposalCreateNative::new,
+          ProposalDeleteNative::new,
+          ConvertFromTronBytesAddressNative::new,
+          ConvertFromTronBase58AddressNative::new,
+          TransferAssetNative::new,
+          GetTransferAssetNative::new);
+
+  // only the last three bytes of a precompile address may be non-zero
+  private static final int ADDRESS_PREFIX_SIZE = 29;
 
   public static PrecompiledContract getContractForAddress(DataWord address) {
+    return getContractForAddress(address, null);
+  }
+
+  /**
+   * Returns the contract at the address, or null if there is none. Every call gets an instance
+   * of its own, since a contract keeps the caller, deposit and result it is given. The native
+   * contracts are only found once the ALLOW_NATIVE_PRECOMPILES proposal has been approved, read
+   * through the deposit of the call, so every node switches them on at the same block.
+   */
+  public static PrecompiledContract getContractForAddress(DataWord address, Deposit deposit) {
 
     if (address == null) {
-      return identity;
-    }
-    if (address.equals(ecRecoverAddr)) {
-      return ecRecover;
-    }
-    if (address.equals(sha256Addr)) {
-      return sha256;
-    }
-    if (address.equals(ripempd160Addr)) {
-      return ripempd160;
+      return create(IDENTITY_INDEX, standardContracts.get(IDENTITY_INDEX));
     }
-    if (address.equals(identityAddr)) {
-      return identity;
-    }
-//    if (address.equals(voteContractAddr)) {
-//      return voteContract;
-//    }
-//    if (address.equals(freezeBalanceAddr)) {
-//      return freezeBalance;
-//    }
-//    if (address.equals(unFreezeBalanceAddr)) {
-//      return unFreezeBalance;
-//    }
-//    if (address.equals(withdrawBalanceAddr)) {
-//      return withdrawBalance;
-//    }
-//    if (address.equals(proposalApproveAddr)) {
-//      return proposalApprove;
-//    }
-//    if (address.equals(proposalCreateAddr)) {
-//      return proposalCreate;
-//    }
-//    if (address.equals(proposalDeleteAddr)) {
-//      return proposalDelete;
-//    }
-//    if (address.equals(convertFromTronBytesAddressAddr)) {
-//      return convertFromTronBytesAddress;
-//    }
-//    if (address.equals(convertFromTronBase58AddressAddr)) {
-//      return convertFromTronBase58Address;
-//    }
-//    if (address.equals(transferAssetAddr)) {
-//      return transferAsset;
-//    }
-//    if (address.equals(getTransferAssetAmountAddr)) {
-//      return getTransferAssetAmount;
-//    }
-
-    // Byzantium precompiles
-    if (address.equals(modExpAddr)) {
-      return modExp;
-    }
-    if (address.equals(altBN128AddAddr)) {
-      return altBN128Add;
+    byte[] data = address.getData();
+    for (int i = 0; i < ADDRESS_PREFIX_SIZE; i++) {
+      if (data[i] != 0) {
+        return null;
+      }
     }
-    if (address.equals(altBN128MulAddr)) {
-      return altBN128Mul;
+    int index = ((data[30] & 0xff) << 8) | (data[31] & 0xff);
+    if (data[29] == 0) {
+      return data[30] == 0 && index < standardContracts.size()
+          ? create(index, standardContracts.get(index)) : null;
     }
-    if (address.equals(altBN128PairingAddr)) {
-      return altBN128Pairing;
+    if (data[29] == NATIVE_ADDRESS_PREFIX && index < nativeContracts.size()
+        && allowNativeContracts(deposit)) {
+      return create((NATIVE_ADDRESS_PREFIX << 16) | index, nativeContracts.get(index));
     }
     return null;
   }
 
+  private static boolean allowNativeContracts(Deposit deposit) {
+    return deposit != null && deposit.getDbManager() != null
+        && deposit.getDbManager().getDynamicPropertiesStore().getAllowNativePrecompiles() == 1;
+  }
+
+  // wraps the contract for PrecompiledProfiler if profiling is enabled
+  private static PrecompiledContract create(int address,
+      Supplier<PrecompiledContract> constructor) {
+    return constructor == null ? null : PrecompiledProfiler.wrap(address, constructor.get());
+  }
+
+  private static byte[] sha256(byte[] data) {
+    MessageDigest digest = sha256Digest.get();
+    digest.reset();
+    return digest.digest(data);
+  }
+
   private static byte[] encodeRes(byte[] w1, byte[] w2) {
 
     byte[] res = new byte[64];
@@ -289,6 +253,7 @@ public class PrecompiledContracts {
 
   public static class Sha256 extends PrecompiledContract {
 
+    private static final PrecompiledResultCache cache = PrecompiledResultCache.create("Sha256");
 
     @Override
     public long getEnergyForData(byte[] data) {
@@ -305,15 +270,16 @@ public class PrecompiledContracts {
     public Pair<Boolean, byte[]> execute(byte[] data) {
 
       if (data == null) {
-        return Pair.of(true, Sha256Hash.hash(ByteUtil.EMPTY_BYTE_ARRAY));
+        data = ByteUtil.EMPTY_BYTE_ARRAY;
       }
-      return Pair.of(true, Sha256Hash.hash(data));
+      return Pair.of(true, cache.get(data, PrecompiledContracts::sha256));
     }
   }
 
 
   public static class Ripempd160 extends PrecompiledContract {
 
+    private static final PrecompiledResultCache cache = PrecompiledResultCache.create("Ripempd160");
 
     @Override
     public long getEnergyForData(byte[] data) {
@@ -329,19 +295,25 @@ public class PrecompiledContracts {
 
     @Override
     public Pair<Boolean, byte[]> execute(byte[] data) {
-      byte[] target = new byte[20];
       if (data == null) {
         data = ByteUtil.EMPTY_BYTE_ARRAY;
       }
-      byte[] orig = Sha256Hash.hash(data);
+      return Pair.of(true, cache.get(data, Ripempd160::hash));
+    }
+
+    private static byte[] hash(byte[] data) {
+      byte[] target = new byte[20];
+      byte[] orig = sha256(data);
       System.arraycopy(orig, 0, target, 0, 20);
-      return Pair.of(true, Sha256Hash.hash(target));
+      return sha256(target);
     }
   }
 
 
   public static class ECRecover extends PrecompiledContract {
 
+    private static final PrecompiledResultCache cache = PrecompiledResultCache.create("ECRecover");
+
     @Override
     public long getEnergyForData(byte[] data) {
       return 3000;
@@ -349,39 +321,35 @@ public class PrecompiledContracts {
 
     @Override
     public Pair<Boolean, byte[]> execute(byte[] data) {
+      // only h, v, r and s are read, anything after them does not change the result
+      if (data != null && data.length > 128) {
+        data = Arrays.copyOf(data, 128);
+      }
+      return Pair.of(true, cache.get(data, ECRecover::recover));
+    }
 
-      byte[] h = new byte[32];
-      byte[] v = new byte[32];
-      byte[] r = new byte[32];
-      byte[] s = new byte[32];
-
-      DataWord out = null;
-
+    // data is h, v, r and s, 32 bytes each; a short s is padded with zeros
+    private static byte[] recover(byte[] data) {
+      if (data == null || data.length < 96 || !validateV(data)) {
+        return ByteUtil.EMPTY_BYTE_ARRAY;
+      }
       try {
-        System.arraycopy(data, 0, h, 0, 32);
-        System.arraycopy(data, 32, v, 0, 32);
-        System.arraycopy(data, 64, r, 0, 32);
-
-        int sLength = data.length < 128 ? data.length - 96 : 32;
-        System.arraycopy(data, 96, s, 0, sLength);
-
-        ECKey.ECDSASignature signature = ECKey.ECDSASignature.fromComponents(r, s, v[31]);
-        if (validateV(v) && signature.validateComponents()) {
-          out = new DataWord(ECKey.signatureToAddress(h, signature));
+        byte[] h = Arrays.copyOfRange(data, 0, 32);
+        byte[] r = Arrays.copyOfRange(data, 64, 96);
+        byte[] s = Arrays.copyOfRange(data, 96, 128);
+        ECKey.ECDSASignature signature = ECKey.ECDSASignature.fromComponents(r, s, data[63]);
+        if (signature.validateComponents()) {
+          return new DataWord(ECKey.signatureToAddress(h, signature)).getData();
         }
       } catch (Throwable any) {
       }
-
-      if (out == null) {
-        return Pair.of(true, ByteUtil.EMPTY_BYTE_ARRAY);
-      } else {
-        return Pair.of(true, out.getData());
-      }
+      return ByteUtil.EMPTY_BYTE_ARRAY;
     }
 
-    private static boolean validateV(byte[] v) {
-      for (int i = 0; i < v.length - 1; i++) {
-        if (v[i] != 0) {
+    // every byte of v except the last has to be zero
+    private static boolean validateV(byte[] data) {
+      for (int i = 32; i < 63; i++) {
+        if (data[i] != 0) {
           return false;
         }
       }
@@ -402,8 +370,12 @@ public class PrecompiledContracts {
 
     private static final BigInteger GQUAD_DIVISOR = BigInteger.valueOf(20);
 
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+
     private static final int ARGS_OFFSET = 32 * 3; // addresses length part
 
+    private static final PrecompiledResultCache cache = PrecompiledResultCache.create("ModExp");
+
     @Override
     public long getEnergyForData(byte[] data) {
 
@@ -435,6 +407,10 @@ public class PrecompiledContracts {
       if (data == null) {
         return Pair.of(true, ByteUtil.EMPTY_BYTE_ARRAY);
       }
+      return Pair.of(true, cache.get(data, this::modPow));
+    }
+
+    private byte[] modPow(byte[] data) {
 
       int baseLen = parseLen(data, 0);
       int expLen = parseLen(data, 1);
@@ -446,22 +422,23 @@ public class PrecompiledContracts {
 
       // check if modulus is zero
       if (BIUtil.isZero(mod)) {
-        return Pair.of(true, ByteUtil.EMPTY_BYTE_ARRAY);
+        return ByteUtil.EMPTY_BYTE_ARRAY;
       }
 
-      byte[] res = ByteUtil.stripLeadingZeroes(base.modPow(exp, mod).toByteArray());
-
-      // adjust result to the same length as the modulus has
-      if (res.length < modLen) {
-
-        byte[] adjRes = new byte[modLen];
-        System.arraycopy(res, 0, adjRes, modLen - res.length, res.length);
-
-        return Pair.of(true, adjRes);
+      // a square is cheaper as one multiply and one division than through modPow, which first
+      // converts to Montgomery form (or, for an even modulus, splits it); the value is the same
+      BigInteger result = exp.equals(TWO) ? base.multiply(base).mod(mod) : base.modPow(exp, mod);
 
-      } else {
-        return Pair.of(true, res);
+      // the result is below the modulus, so it always fits in modLen bytes; left-pad it
+      byte[] res = result.toByteArray();
+      int resStart = res[0] == 0 ? 1 : 0;
+      int resLength = res.length - resStart;
+      if (resLength == modLen && resStart == 0) {
+        return res;
       }
+      byte[] adjRes = new byte[modLen];
+      System.arraycopy(res, resStart, adjRes, modLen - resLength, resLength);
+      return adjRes;
     }
 
     private long getMultComplexity(long x) {
@@ -518,6 +495,9 @@ public class PrecompiledContracts {
    */
   public static class BN128Addition extends PrecompiledContract {
 
+    private static final PrecompiledResultCache cache =
+        PrecompiledResultCache.create("BN128Addition");
+
     @Override
     public long getEnergyForData(byte[] data) {
       return 500;
@@ -529,6 +509,12 @@ public class PrecompiledContracts {
       if (data == null) {
         data = ByteUtil.EMPTY_BYTE_ARRAY;
       }
+      byte[] res = cache.get(data, BN128Addition::add);
+      return res == null ? Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY) : Pair.of(true, res);
+    }
+
+    // returns null if either point is invalid
+    private static byte[] add(byte[] data) {
 
       byte[] x1 = ByteUtil.parseWord(data, 0);
       byte[] y1 = ByteUtil.parseWord(data, 1);
@@ -538,17 +524,17 @@ public class PrecompiledContracts {
 
       BN128<Fp> p1 = BN128Fp.create(x1, y1);
       if (p1 == null) {
-        return Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY);
+        return null;
       }
 
       BN128<Fp> p2 = BN128Fp.create(x2, y2);
       if (p2 == null) {
-        return Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY);
+        return null;
       }
 
       BN128<Fp> res = p1.add(p2).toEthNotation();
 
-      return Pair.of(true, encodeRes(res.x().bytes(), res.y().bytes()));
+      return encodeRes(res.x().bytes(), res.y().bytes());
     }
   }
 
@@ -565,6 +551,9 @@ public class PrecompiledContracts {
    */
   public static class BN128Multiplication extends PrecompiledContract {
 
+    private static final PrecompiledResultCache cache =
+        PrecompiledResultCache.create("BN128Multiplication");
+
     @Override
     public long getEnergyForData(byte[] data) {
       return 40000;
@@ -576,6 +565,12 @@ public class PrecompiledContracts {
       if (data == null) {
         data = ByteUtil.EMPTY_BYTE_ARRAY;
       }
+      byte[] res = cache.get(data, BN128Multiplication::mul);
+      return res == null ? Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY) : Pair.of(true, res);
+    }
+
+    // returns null if the point is invalid
+    private static byte[] mul(byte[] data) {
 
       byte[] x = ByteUtil.parseWord(data, 0);
       byte[] y = ByteUtil.parseWord(data, 1);
@@ -584,12 +579,12 @@ public class PrecompiledContracts {
 
       BN128<Fp> p = BN128Fp.create(x, y);
       if (p == null) {
-        return Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY);
+        return null;
       }
 
       BN128<Fp> res = p.mul(BIUtil.toBI(s)).toEthNotation();
 
-      return Pair.of(true, encodeRes(res.x().bytes(), res.y().bytes()));
+      return encodeRes(res.x().bytes(), res.y().bytes());
     }
   }
 
@@ -611,6 +606,12 @@ public class PrecompiledContracts {
 
     private static final int PAIR_SIZE = 192;
 
+    // verifier contracts check up to a few pairs; longer inputs are not worth keeping
+    private static final int MAX_CACHED_PAIRS = 8;
+
+    private static final PrecompiledResultCache cache =
+        PrecompiledResultCache.create("BN128Pairing", PAIR_SIZE * MAX_CACHED_PAIRS);
+
     @Override
     public long getEnergyForData(byte[] data) {
 
@@ -633,6 +634,14 @@ public class PrecompiledContracts {
         return Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY);
       }
 
+      byte[] res = cache.get(data, this::pairing);
+      return res == null ? Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY) : Pair.of(true, res);
+    }
+
+    // returns null if any point is invalid; PairingCheck runs the Miller loop of every pair and
+    // one final exponentiation of their product, the curve arithmetic itself is in zksnark
+    private byte[] pairing(byte[] data) {
+
       PairingCheck check = PairingCheck.create();
 
       // iterating over all pairs
@@ -642,7 +651,7 @@ public class PrecompiledContracts {
 
         // fail if decoding has failed
         if (pair == null) {
-          return Pair.of(false, ByteUtil.EMPTY_BYTE_ARRAY);
+          return null;
         }
 
         check.addPair(pair.getLeft(), pair.getRight());
@@ -651,7 +660,7 @@ public class PrecompiledContracts {
       check.run();
       int result = check.result();
 
-      return Pair.of(true, new DataWord(result).getData());
+      return new DataWord(result).getData();
     }
 
     private Pair<BN128G1, BN128G2> decodePair(byte[] in, int offset) {
@@ -0,0 +1,141 @@
+package com.changyo.common.runtime.vm;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JFR event for one precompiled contract call, emitted by {@link PrecompiledProfiler}.
+ *
+ * <p>The event type is built at runtime through jdk.jfr.EventFactory, looked up reflectively, so
+ * the node neither compiles nor links against jdk.jfr. The event type is looked up once, and
+ * {@link #begin()} first asks it whether any recording enables the event, so a call costs one
+ * reflective check when nothing is recording. On a JVM without JFR, {@link #begin()} returns
+ * null and nothing is emitted.</p>
+ */
+@Slf4j(topic = "VM")
+final class PrecompiledExecutionEvent {
+
+  private static final int ADDRESS = 0;
+  private static final int CONTRACT = 1;
+  private static final int INPUT_SIZE = 2;
+  private static final int ENERGY = 3;
+  private static final int SUCCESS = 4;
+
+  private static final Object factory;
+  private static final Object eventType;
+  private static final Method isEnabledMethod;
+  private static final Method newEventMethod;
+  private static final Method beginMethod;
+  private static final Method endMethod;
+  private static final Method shouldCommitMethod;
+  private static final Method setMethod;
+  private static final Method commitMethod;
+
+  static {
+    Object eventFactory = null;
+    Object type = null;
+    Method[] methods = new Method[7];
+    try {
+      Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+      Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+      Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+      Constructor<?> value = valueClass.getConstructor(Class.class, String.class, List.class);
+      Class<?> label = Class.forName("jdk.jfr.Label");
+
+      List<Object> annotations = Arrays.asList(
+          annotation.newInstance(Class.forName("jdk.jfr.Name"), "com.changyo.PrecompiledExecution"),
+          annotation.newInstance(label, "Precompiled Contract Execution"),
+          annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[]{"Tron", "VM"}),
+          annotation.newInstance(Class.forName("jdk.jfr.Description"),
+              "Execution of a precompiled contract with the energy it was charged"));
+      // in the order of the field indexes above
+      List<Object> fields = Arrays.asList(
+          value.newInstance(String.class, "address",
+              Collections.singletonList(annotation.newInstance(label, "Address"))),
+          value.newInstance(String.class, "contract",
+              Collections.singletonList(annotation.newInstance(label, "Contract"))),
+          value.newInstance(int.class, "inputSize",
+              Collections.singletonList(annotation.newInstance(label, "Input Size"))),
+          value.newInstance(long.class, "energy",
+              Collections.singletonList(annotation.newInstance(label, "Energy"))),
+          value.newInstance(boolean.class, "success",
+              Collections.singletonList(annotation.newInstance(label, "Success"))));
+
+      Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+      eventFactory = factoryClass.getMethod("create", List.class, List.class)
+          .invoke(null, annotations, fields);
+      Class<?> eventClass = Class.forName("jdk.jfr.Event");
+      methods[0] = factoryClass.getMethod("newEvent");
+      methods[1] = eventClass.getMethod("begin");
+      methods[2] = eventClass.getMethod("end");
+      methods[3] = eventClass.getMethod("shouldCommit");
+      methods[4] = eventClass.getMethod("set", int.class, Object.class);
+      methods[5] = eventClass.getMethod("commit");
+      type = factoryClass.getMethod("getEventType").invoke(eventFactory);
+      methods[6] = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      logger.info("JFR is not available, precompiled contract events are disabled.");
+      eventFactory = null;
+    }
+    factory = eventFactory;
+    eventType = type;
+    isEnabledMethod = methods[6];
+    newEventMethod = methods[0];
+    beginMethod = methods[1];
+    endMethod = methods[2];
+    shouldCommitMethod = methods[3];
+    setMethod = methods[4];
+    commitMethod = methods[5];
+  }
+
+  private PrecompiledExecutionEvent() {
+  }
+
+  /**
+   * Starts timing a call. Returns the event to pass to {@link #commit}, or null without JFR or
+   * when no recording enables the event.
+   */
+  static Object begin() {
+    if (factory == null) {
+      return null;
+    }
+    try {
+      if (!(Boolean) isEnabledMethod.invoke(eventType)) {
+        return null;
+      }
+      Object event = newEventMethod.invoke(factory);
+      beginMethod.invoke(event);
+      return event;
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Ends the event and commits it if a recording enables it.
+   */
+  static void commit(Object event, String address, String contract, int inputSize, long energy,
+      boolean success) {
+    if (event == null) {
+      return;
+    }
+    try {
+      endMethod.invoke(event);
+      if (!(Boolean) shouldCommitMethod.invoke(event)) {
+        return;
+      }
+      setMethod.invoke(event, ADDRESS, address);
+      setMethod.invoke(event, CONTRACT, contract);
+      setMethod.invoke(event, INPUT_SIZE, inputSize);
+      setMethod.invoke(event, ENERGY, energy);
+      setMethod.invoke(event, SUCCESS, success);
+      commitMethod.invoke(event);
+    } catch (ReflectiveOperationException e) {
+      logger.debug("Commit precompiled contract event failed, {}.", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package com.changyo.common.runtime.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang3.tuple.Pair;
+import com.changyo.common.runtime.vm.PrecompiledContracts.PrecompiledContract;
+import com.changyo.common.runtime.vm.program.ProgramResult;
+import com.changyo.common.storage.Deposit;
+import com.changyo.core.config.args.Args;
+
+/**
+ * Per-address timing of the precompiled contracts, enabled by vm.profilePrecompiles.
+ *
+ * <p>When enabled, PrecompiledContracts hands out a wrapper for every contract it dispatches to.
+ * The wrapper counts calls, input bytes and the energy getEnergyForData charges for them. One
+ * call in vm.profilePrecompilesSampleInterval, chosen at random, is also timed and emitted as a
+ * {@link PrecompiledExecutionEvent} when the JVM has JFR and a recording enables it; the
+ * default interval of 1 times every call. The counters only grow; callers compare two reads to
+ * get the calls in between. Comparing the nanoseconds spent on the sampled calls with the energy
+ * charged for them shows the contracts whose price is too low for the CPU they use. When
+ * disabled nothing is wrapped and the VM path is unchanged.</p>
+ *
+ * <p>Only precompiled contracts are covered. Timing opcodes needs a hook in the interpreter
+ * loop of the VM, which is not part of this tree.</p>
+ */
+public final class PrecompiledProfiler {
+
+  private static final boolean enabled = Args.getInstance().isProfilePrecompiles();
+
+  private static final int sampleInterval =
+      Math.max(1, Args.getInstance().getProfilePrecompilesSampleInterval());
+
+  private static final Map<Integer, Profile> profiles = new ConcurrentSkipListMap<>();
+
+  private PrecompiledProfiler() {
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  static PrecompiledContract wrap(int address, PrecompiledContract contract) {
+    if (!enabled || contract == null) {
+      return contract;
+    }
+    Profile profile = profiles.computeIfAbsent(address,
+        a -> new Profile(a, contract.getClass().getSimpleName()));
+    return new ProfiledContract(contract, profile);
+  }
+
+  /**
+   * Returns the counters of every contract called since startup, ordered by address.
+   */
+  public static List<ProfileSnapshot> getProfiles() {
+    List<ProfileSnapshot> snapshots = new ArrayList<>(profiles.size());
+    for (Profile profile : profiles.values()) {
+      snapshots.add(profile.snapshot());
+    }
+    return snapshots;
+  }
+
+  private static class Profile {
+
+    private final int address;
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder energy = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder sampledEnergy = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private Profile(int address, String name) {
+      this.address = address;
+      this.name = name;
+    }
+
+    private void record(int inputSize, long energyUsed, boolean success) {
+      count.increment();
+      if (!success) {
+        failures.increment();
+      }
+      inputBytes.add(inputSize);
+      energy.add(energyUsed);
+    }
+
+    private void recordSample(long energyUsed, long elapsed) {
+      sampled.increment();
+      sampledEnergy.add(energyUsed);
+      nanos.add(elapsed);
+      maxNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private ProfileSnapshot snapshot() {
+      return new ProfileSnapshot(address, name, count.sum(), failures.sum(), inputBytes.sum(),
+          energy.sum(), sampled.sum(), sampledEnergy.sum(), nanos.sum(), maxNanos.get());
+    }
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class ProfileSnapshot {
+
+    private final int address;
+    private final String name;
+    private final long count;
+    private final long failures;
+    private final long inputBytes;
+    // energy charged by getEnergyForData for the same calls
+    private final long energy;
+    // calls that were timed, and the energy charged for them
+    private final long sampledCount;
+    private final long sampledEnergy;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    public double getNanosPerEnergy() {
+      return sampledEnergy == 0 ? 0 : (double) totalNanos / sampledEnergy;
+    }
+  }
+
+  /**
+   * Forwards to the wrapped contract, which keeps the caller, deposit and result it is given.
+   */
+  private static class ProfiledContract extends PrecompiledContract {
+
+    private final PrecompiledContract contract;
+    private final Profile profile;
+    private final String address;
+
+    private ProfiledContract(PrecompiledContract contract, Profile profile) {
+      this.contract = contract;
+      this.profile = profile;
+      this.address = "0x" + Integer.toHexString(profile.address);
+    }
+
+    @Override
+    public long getEnergyForData(byte[] data) {
+      return contract.getEnergyForData(data);
+    }
+
+    @Override
+    public Pair<Boolean, byte[]> execute(byte[] data) {
+      long energyUsed = contract.getEnergyForData(data);
+      int inputSize = data == null ? 0 : data.length;
+      if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+        Pair<Boolean, byte[]> result = contract.execute(data);
+        profile.record(inputSize, energyUsed, result.getLeft());
+        return result;
+      }
+
+      Object event = PrecompiledExecutionEvent.begin();
+      long start = System.nanoTime();
+      Pair<Boolean, byte[]> result = contract.execute(data);
+      long elapsed = System.nanoTime() - start;
+
+      boolean success = result.getLeft();
+      profile.record(inputSize, energyUsed, success);
+      profile.recordSample(energyUsed, elapsed);
+      PrecompiledExecutionEvent.commit(event, address, profile.name, inputSize, energyUsed,
+          success);
+      return result;
+    }
+
+    @Override
+    public void setCallerAddress(byte[] callerAddress) {
+      contract.setCallerAddress(callerAddress);
+    }
+
+    @Override
+    public void setDeposit(Deposit deposit) {
+      contract.setDeposit(deposit);
+    }
+
+    @Override
+    public void setResult(ProgramResult result) {
+      contract.setResult(result);
+    }
+
+    @Override
+    public byte[] getCallerAddress() {
+      return contract.getCallerAddress();
+    }
+
+    @Override
+    public Deposit getDeposit() {
+      return contract.getDeposit();
+    }
+
+    @Override
+    public ProgramResult getResult() {
+      return contract.getResult();
+    }
+
+    @Override
+    public boolean isRootCallConstant() {
+      return contract.isRootCallConstant();
+    }
+
+    @Override
+    public void setRootCallConstant(boolean rootCallConstant) {
+      contract.setRootCallConstant(rootCallConstant);
+    }
+  }
+}
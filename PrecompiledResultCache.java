@@ -0,0 +1,146 @@
+package com.changyo.common.runtime.vm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import com.changyo.core.config.args.Args;
+
+/**
+ * Input to output cache for a deterministic precompiled contract.
+ *
+ * <p>Keys are the exact input bytes, so a hit can never return the output of another input.
+ * Inputs larger than the cache's maximum input size, {@link #MAX_INPUT_SIZE} unless given,
+ * bypass the cache, which keeps the memory bound at vm.precompileCacheSize entries of at most
+ * that size. A null output, meaning the call failed, is returned but not cached. Energy is
+ * charged by the caller before execute, so a hit costs the contract the same as a miss. Setting
+ * vm.precompileCacheSize to 0 disables every cache.</p>
+ *
+ * <p>Once a minute the hits, misses and bypassed calls of the minute are logged per contract,
+ * for the contracts that were called.</p>
+ */
+@Slf4j(topic = "VM")
+public final class PrecompiledResultCache {
+
+  static final int MAX_INPUT_SIZE = 1024;
+
+  private static final long LOG_INTERVAL_SECONDS = 60;
+
+  private static final Map<String, PrecompiledResultCache> caches =
+      Collections.synchronizedMap(new LinkedHashMap<>());
+
+  private static final ScheduledExecutorService statsLogger =
+      Args.getInstance().getPrecompileCacheSize() > 0
+          ? Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("precompile-cache-stats").setDaemon(true).build())
+          : null;
+
+  static {
+    if (statsLogger != null) {
+      statsLogger.scheduleWithFixedDelay(PrecompiledResultCache::logStats, LOG_INTERVAL_SECONDS,
+          LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private final String name;
+  private final Cache<ByteString, byte[]> cache;
+  private final int maxInputSize;
+  // calls whose input was too large to be cached
+  private final LongAdder bypassed = new LongAdder();
+  private CacheStats loggedStats = new CacheStats(0, 0, 0, 0, 0, 0);
+  private long loggedBypassed;
+
+  private PrecompiledResultCache(String name, long size, int maxInputSize) {
+    this.name = name;
+    this.cache = size > 0
+        ? CacheBuilder.newBuilder().maximumSize(size).recordStats().build()
+        : null;
+    this.maxInputSize = maxInputSize;
+  }
+
+  static PrecompiledResultCache create(String name) {
+    return create(name, MAX_INPUT_SIZE);
+  }
+
+  static PrecompiledResultCache create(String name, int maxInputSize) {
+    PrecompiledResultCache resultCache =
+        new PrecompiledResultCache(name, Args.getInstance().getPrecompileCacheSize(),
+            maxInputSize);
+    caches.put(name, resultCache);
+    return resultCache;
+  }
+
+  /**
+   * Returns hit and miss counts per precompiled contract, or an empty map if caching is
+   * disabled.
+   */
+  public static Map<String, CacheStats> getStats() {
+    Map<String, CacheStats> stats = new LinkedHashMap<>();
+    synchronized (caches) {
+      caches.forEach((name, resultCache) -> {
+        if (resultCache.cache != null) {
+          stats.put(name, resultCache.cache.stats());
+        }
+      });
+    }
+    return stats;
+  }
+
+  private static void logStats() {
+    synchronized (caches) {
+      caches.values().forEach(PrecompiledResultCache::logInterval);
+    }
+  }
+
+  private void logInterval() {
+    if (cache == null) {
+      return;
+    }
+    CacheStats stats = cache.stats();
+    CacheStats interval = stats.minus(loggedStats);
+    long bypassedSum = bypassed.sum();
+    long intervalBypassed = bypassedSum - loggedBypassed;
+    loggedStats = stats;
+    loggedBypassed = bypassedSum;
+    if (interval.requestCount() == 0 && intervalBypassed == 0) {
+      return;
+    }
+    logger.info("Precompile cache {}: {} hits, {} misses, hit rate {}%, {} bypassed.", name,
+        interval.hitCount(), interval.missCount(),
+        String.format("%.1f", interval.hitRate() * 100), intervalBypassed);
+  }
+
+  /**
+   * Returns the output for input, calling compute on a miss. The returned array is never
+   * shared with the cache.
+   */
+  byte[] get(byte[] input, Function<byte[], byte[]> compute) {
+    if (cache == null || input == null) {
+      return compute.apply(input);
+    }
+    if (input.length > maxInputSize) {
+      bypassed.increment();
+      return compute.apply(input);
+    }
+    ByteString key = ByteString.copyFrom(input);
+    byte[] output = cache.getIfPresent(key);
+    if (output == null) {
+      output = compute.apply(input);
+      if (output != null) {
+        cache.put(key, output.clone());
+      }
+      return output;
+    }
+    return output.clone();
+  }
+}
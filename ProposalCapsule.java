@@ -4,9 +4,12 @@ import com.changyo.core.config.Parameter;
 import com.google.common.collect.Lists;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import com.changyo.common.utils.ByteArray;
 import com.changyo.common.utils.StringUtil;
@@ -17,6 +20,9 @@ import com.changyo.protos.Protocol.Proposal.State;
 public class ProposalCapsule implements ProtoCapsule<Proposal> {
 
   private Proposal proposal;
+  // open between beginBatch() and endBatch(), mutations are applied to it instead of proposal
+  private Proposal.Builder batchBuilder;
+  private boolean batchDirty;
 
   public ProposalCapsule(final Proposal proposal) {
     this.proposal = proposal;
@@ -38,100 +44,85 @@ public class ProposalCapsule implements ProtoCapsule<Proposal> {
   }
 
   public long getID() {
-    return this.proposal.getProposalId();
+    return instance().getProposalId();
   }
 
   public void setID(long id) {
-    this.proposal = this.proposal.toBuilder()
-        .setProposalId(id)
-        .build();
+    update(builder -> builder.setProposalId(id));
   }
 
   public ByteString getProposalAddress() {
-    return this.proposal.getProposerAddress();
+    return instance().getProposerAddress();
   }
 
   public void setProposalAddress(ByteString address) {
-    this.proposal = this.proposal.toBuilder()
-        .setProposerAddress(address)
-        .build();
+    update(builder -> builder.setProposerAddress(address));
   }
 
   public Map<Long, String> getParameters() {
-    return this.proposal.getParametersMap();
+    return instance().getParametersMap();
   }
 
   public void setParameters(Map<Long, String> parameters) {
-    this.proposal = this.proposal.toBuilder()
-        .putAllParameters(parameters)
-        .build();
+    update(builder -> builder.putAllParameters(parameters));
   }
 
   public long getExpirationTime() {
-    return this.proposal.getExpirationTime();
+    return instance().getExpirationTime();
   }
 
   public void setExpirationTime(long time) {
-    this.proposal = this.proposal.toBuilder()
-        .setExpirationTime(time)
-        .build();
+    update(builder -> builder.setExpirationTime(time));
   }
 
   public long getCreateTime() {
-    return this.proposal.getCreateTime();
+    return instance().getCreateTime();
   }
 
   public void setCreateTime(long time) {
-    this.proposal = this.proposal.toBuilder()
-        .setCreateTime(time)
-        .build();
+    update(builder -> builder.setCreateTime(time));
   }
 
   public List<ByteString> getApprovals() {
-    return this.proposal.getApprovalsList();
+    return instance().getApprovalsList();
   }
 
   public void removeApproval(ByteString address) {
-    List<ByteString> approvals = Lists.newArrayList();
-    approvals.addAll(getApprovals());
-    approvals.remove(address);
-    this.proposal = this.proposal.toBuilder()
-        .clearApprovals()
-        .addAllApprovals(approvals)
-        .build();
+    update(builder -> {
+      List<ByteString> approvals = Lists.newArrayList();
+      approvals.addAll(builder.getApprovalsList());
+      approvals.remove(address);
+      builder.clearApprovals().addAllApprovals(approvals);
+    });
   }
 
   public void clearApproval() {
-    this.proposal = this.proposal.toBuilder().clearApprovals().build();
+    update(Proposal.Builder::clearApprovals);
   }
 
   public void addApproval(ByteString committeeAddress) {
-    this.proposal = this.proposal.toBuilder()
-        .addApprovals(committeeAddress)
-        .build();
+    update(builder -> builder.addApprovals(committeeAddress));
   }
 
   public State getState() {
-    return this.proposal.getState();
+    return instance().getState();
   }
 
   public void setState(State state) {
-    this.proposal = this.proposal.toBuilder()
-        .setState(state)
-        .build();
+    update(builder -> builder.setState(state));
   }
 
   public boolean hasProcessed() {
-    return this.proposal.getState().equals(State.DISAPPROVED) || this.proposal.getState()
+    return instance().getState().equals(State.DISAPPROVED) || instance().getState()
         .equals(State.APPROVED);
   }
 
   public boolean hasCanceled() {
-    return this.proposal.getState().equals(State.CANCELED);
+    return instance().getState().equals(State.CANCELED);
   }
 
   public boolean hasExpired(long time) {
-    return this.proposal.getExpirationTime() <= time;
+    return instance().getExpirationTime() <= time;
   }
 
 
@@ -143,22 +134,75 @@ public class ProposalCapsule implements ProtoCapsule<Proposal> {
     return ByteArray.fromLong(number);
   }
 
+  /**
+   * Starts collecting mutations in one open builder, so a series of changes builds the proposal
+   * once instead of once per change. The proposal is sealed when it is next read, which includes
+   * the store write, and on {@link #endBatch()}.
+   */
+  public void beginBatch() {
+    if (this.batchBuilder == null) {
+      this.batchBuilder = this.proposal.toBuilder();
+      this.batchDirty = false;
+    }
+  }
+
+  public void endBatch() {
+    instance();
+    this.batchBuilder = null;
+  }
+
+  private void update(Consumer<Proposal.Builder> mutation) {
+    if (this.batchBuilder != null) {
+      mutation.accept(this.batchBuilder);
+      this.batchDirty = true;
+      return;
+    }
+    Proposal.Builder builder = this.proposal.toBuilder();
+    mutation.accept(builder);
+    this.proposal = builder.build();
+  }
+
+  private Proposal instance() {
+    if (this.batchDirty) {
+      this.proposal = this.batchBuilder.build();
+      this.batchDirty = false;
+    }
+    return this.proposal;
+  }
+
   @Override
   public byte[] getData() {
-    return this.proposal.toByteArray();
+    return instance().toByteArray();
   }
 
   @Override
   public Proposal getInstance() {
-    return this.proposal;
+    return instance();
   }
 
   public boolean hasMostApprovals(List<ByteString> activeWitnesses) {
-    long count = this.proposal.getApprovalsList().stream()
-        .filter(witness -> activeWitnesses.contains(witness)).count();
-    if (count != this.proposal.getApprovalsCount()) {
-      List<ByteString> InvalidApprovalList = this.proposal.getApprovalsList().stream()
-          .filter(witness -> !activeWitnesses.contains(witness)).collect(Collectors.toList());
+    return hasMostApprovals(activeWitnesses, new HashSet<>(activeWitnesses));
+  }
+
+  /**
+   * Same as {@link #hasMostApprovals(List)}, with the active witnesses also given as a set that
+   * can be built once and shared by every proposal of a maintenance.
+   */
+  public boolean hasMostApprovals(List<ByteString> activeWitnesses,
+      Set<ByteString> activeWitnessSet) {
+    long count = 0;
+    List<ByteString> InvalidApprovalList = null;
+    for (ByteString witness : instance().getApprovalsList()) {
+      if (activeWitnessSet.contains(witness)) {
+        count++;
+      } else {
+        if (InvalidApprovalList == null) {
+          InvalidApprovalList = new ArrayList<>();
+        }
+        InvalidApprovalList.add(witness);
+      }
+    }
+    if (InvalidApprovalList != null) {
       logger.info("InvalidApprovalList:" + StringUtil.getAddressStringList(InvalidApprovalList));
     }
     if (activeWitnesses.size() != Parameter.ChainConstant.MAX_ACTIVE_WITNESS_NUM) {
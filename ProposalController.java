@@ -1,14 +1,17 @@
 package com.changyo.core.witness;
 
+import com.changyo.core.ChainParameterRegistry;
+import com.changyo.core.capsule.PendingProposalIndexCapsule;
 import com.changyo.core.capsule.ProposalCapsule;
 import com.changyo.core.db.Manager;
 import com.google.protobuf.ByteString;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import com.changyo.common.utils.ByteArray;
 import com.changyo.protos.Protocol.Proposal.State;
 
 @Slf4j(topic = "witness")
@@ -25,6 +28,12 @@ public class ProposalController {
   }
 
 
+  /**
+   * Processes the proposals that have expired by the next maintenance time. Only the expired
+   * entries of the pending proposal index are read. They are processed newest first and only
+   * above the newest proposal processed at an earlier maintenance, which is the order and the
+   * stop condition of the former backward walk over the proposal store.
+   */
   public void processProposals() {
     long latestProposalNum = manager.getDynamicPropertiesStore().getLatestProposalNum();
     if (latestProposalNum == 0) {
@@ -32,11 +41,24 @@ public class ProposalController {
       return;
     }
 
-    long proposalNum = latestProposalNum;
+    PendingProposalIndexCapsule index = loadPendingProposalIndex(latestProposalNum);
+    long currentTime = manager.getDynamicPropertiesStore().getNextMaintenanceTime();
+    List<Long> expired = index.pollExpired(currentTime);
+    expired.sort(Collections.reverseOrder());
 
-    ProposalCapsule proposalCapsule = null;
+    // the schedule only changes after the proposals of a maintenance have been processed
+    List<ByteString> activeWitnesses = manager.getWitnessScheduleStore().getActiveWitnesses();
+    Set<ByteString> activeWitnessSet = new HashSet<>(activeWitnesses);
 
-    while (proposalNum > 0) {
+    long processedProposalNum = index.getProcessedProposalNum();
+    for (long proposalNum : expired) {
+      if (proposalNum < index.getProcessedProposalNum()) {
+        logger.info("Proposal is older than processed proposal[{}]，id:[{}],skip it",
+            index.getProcessedProposalNum(), proposalNum);
+        continue;
+      }
+
+      ProposalCapsule proposalCapsule;
       try {
         proposalCapsule = manager.getProposalStore()
             .get(ProposalCapsule.calculateDbKey(proposalNum));
@@ -46,36 +68,79 @@ public class ProposalController {
       }
 
       if (proposalCapsule.hasProcessed()) {
-        logger
-            .info("Proposal has processed，id:[{}],skip it and before it",
-                proposalCapsule.getID());
-        //proposals with number less than this one, have been processed before
-        break;
+        logger.info("Proposal has processed，id:[{}],skip it", proposalCapsule.getID());
+        continue;
       }
 
       if (proposalCapsule.hasCanceled()) {
         logger.info("Proposal has canceled，id:[{}],skip it", proposalCapsule.getID());
-        proposalNum--;
         continue;
       }
 
-      long currentTime = manager.getDynamicPropertiesStore().getNextMaintenanceTime();
-      if (proposalCapsule.hasExpired(currentTime)) {
-        processProposal(proposalCapsule);
-        proposalNum--;
-        continue;
+      processProposal(proposalCapsule, activeWitnesses, activeWitnessSet);
+      processedProposalNum = Math.max(processedProposalNum, proposalNum);
+    }
+
+    index.setProcessedProposalNum(processedProposalNum);
+    manager.getDynamicPropertiesStore().savePendingProposalIndex(index);
+    logger.info("Processing proposals done, expired {}, pending {}", expired.size(),
+        index.size());
+  }
+
+  /**
+   * Loads the pending proposal index and adds the proposals created since it was last updated.
+   * The first time, it is built with the same backward walk the proposal store used to get at
+   * every maintenance.
+   */
+  private PendingProposalIndexCapsule loadPendingProposalIndex(long latestProposalNum) {
+    PendingProposalIndexCapsule index = manager.getDynamicPropertiesStore()
+        .getPendingProposalIndex();
+    long fromNum;
+    if (index == null) {
+      index = new PendingProposalIndexCapsule();
+      fromNum = 1;
+      for (long proposalNum = latestProposalNum; proposalNum > 0; proposalNum--) {
+        ProposalCapsule proposalCapsule = getProposal(proposalNum);
+        if (proposalCapsule != null && proposalCapsule.hasProcessed()) {
+          //proposals with number less than this one, have been processed before
+          index.setProcessedProposalNum(proposalNum);
+          fromNum = proposalNum + 1;
+          break;
+        }
       }
+    } else {
+      fromNum = index.getIndexedProposalNum() + 1;
+    }
 
-      proposalNum--;
-      logger.info("Proposal has not expired，id:[{}],skip it", proposalCapsule.getID());
+    for (long proposalNum = fromNum; proposalNum <= latestProposalNum; proposalNum++) {
+      ProposalCapsule proposalCapsule = getProposal(proposalNum);
+      if (proposalCapsule != null && !proposalCapsule.hasProcessed()
+          && !proposalCapsule.hasCanceled()) {
+        index.add(proposalNum, proposalCapsule.getExpirationTime());
+      }
     }
-    logger.info("Processing proposals done, oldest proposal[{}]", proposalNum);
+    index.setIndexedProposalNum(latestProposalNum);
+    return index;
   }
 
-  public void processProposal(ProposalCapsule proposalCapsule) {
+  private ProposalCapsule getProposal(long proposalNum) {
+    try {
+      return manager.getProposalStore().get(ProposalCapsule.calculateDbKey(proposalNum));
+    } catch (Exception ex) {
+      logger.error("", ex);
+      return null;
+    }
+  }
 
+  public void processProposal(ProposalCapsule proposalCapsule) {
     List<ByteString> activeWitnesses = this.manager.getWitnessScheduleStore().getActiveWitnesses();
-    if (proposalCapsule.hasMostApprovals(activeWitnesses)) {
+    processProposal(proposalCapsule, activeWitnesses, new HashSet<>(activeWitnesses));
+  }
+
+  private void processProposal(ProposalCapsule proposalCapsule, List<ByteString> activeWitnesses,
+      Set<ByteString> activeWitnessSet) {
+
+    if (proposalCapsule.hasMostApprovals(activeWitnesses, activeWitnessSet)) {
       logger.info(
           "Processing proposal,id:{},it has received most approvals, "
               + "begin to set dynamic parameter:{}, "
@@ -96,123 +161,8 @@ public class ProposalController {
   }
 
   public void setDynamicParameters(ProposalCapsule proposalCapsule) {
-    Map<Long, String> map = proposalCapsule.getInstance().getParametersMap();
-    for (Map.Entry<Long, String> entry : map.entrySet()) {
-
-      switch (entry.getKey().intValue()) {
-        case (0): {
-          manager.getDynamicPropertiesStore().saveMaintenanceTimeInterval(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (1): {
-          manager.getDynamicPropertiesStore().saveAccountUpgradeCost(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (2): {
-          manager.getDynamicPropertiesStore().saveCreateAccountFee(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (3): {
-          manager.getDynamicPropertiesStore().saveTransactionFee(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (4): {
-          manager.getDynamicPropertiesStore().saveAssetIssueFee(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (5): {
-          manager.getDynamicPropertiesStore().saveWitnessPayPerBlock(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (6): {
-          manager.getDynamicPropertiesStore().saveWitnessStandbyAllowance(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (7): {
-          manager.getDynamicPropertiesStore()
-              .saveCreateNewAccountFeeInSystemContract(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (8): {
-          manager.getDynamicPropertiesStore().saveCreateNewAccountGasRate(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (9): {
-          manager.getDynamicPropertiesStore().saveAllowCreationOfContracts(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (10): {
-          if (manager.getDynamicPropertiesStore().getRemoveThePowerOfTheGr() == 0) {
-            manager.getDynamicPropertiesStore().saveRemoveThePowerOfTheGr(Long.parseLong(entry.getValue()));
-          }
-          break;
-        }
-        case (11): {
-          manager.getDynamicPropertiesStore().saveEnergyFee(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (12): {
-          manager.getDynamicPropertiesStore().saveExchangeCreateFee(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (13): {
-          manager.getDynamicPropertiesStore().saveMaxCpuTimeOfOneTx(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (14): {
-          manager.getDynamicPropertiesStore().saveAllowUpdateAccountName(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (15): {
-          manager.getDynamicPropertiesStore().saveAllowSameTokenName(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (16): {
-          manager.getDynamicPropertiesStore().saveAllowDelegateResource(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (17): {
-          manager.getDynamicPropertiesStore().saveTotalEnergyLimit(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (18): {
-          manager.getDynamicPropertiesStore().saveAllowTvmTransferTrc10(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (19): {
-          manager.getDynamicPropertiesStore().saveTotalEnergyLimit2(Long.parseLong(entry.getValue()));
-          break;
-        }
-        case (20): {
-          if (manager.getDynamicPropertiesStore().getAllowMultiSign() == 0) {
-            manager.getDynamicPropertiesStore().saveAllowMultiSign(Long.parseLong(entry.getValue()));
-          }
-          break;
-        }
-        case (21): {
-          if (manager.getDynamicPropertiesStore().getAllowAdaptiveEnergy() == 0) {
-            manager.getDynamicPropertiesStore().saveAllowAdaptiveEnergy(Long.parseLong(entry.getValue()));
-          }
-          break;
-        }
-        case (22): {
-          manager.getDynamicPropertiesStore().saveUpdateAccountPermissionFee(Long.parseLong(entry.getValue()));
-        }
-        case (23): {
-          manager.getDynamicPropertiesStore().saveMultiSignFee(Long.parseLong(entry.getValue()));
-        }
-        case (24): {
-          manager.getDynamicPropertiesStore().saveIncreaseSupplyAddress(ByteArray.fromHexString(entry.getValue()));
-          break;
-        }
-        case (25): {
-          manager.getDynamicPropertiesStore().saveDecreaseSupplyAddress(ByteArray.fromHexString(entry.getValue()));
-          break;
-        }
-        default:
-          break;
-      }
-    }
+    ChainParameterRegistry.apply(manager, proposalCapsule.getInstance().getParametersMap());
+    manager.getDynamicPropertiesStore().markChainParametersChanged();
   }
 
 
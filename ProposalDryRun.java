@@ -0,0 +1,191 @@
+package com.changyo.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.core.config.Parameter.ChainConstant;
+import com.changyo.core.config.Parameter.ChainParameters;
+import com.changyo.core.db.BlockStatIndex;
+import com.changyo.core.db.BlockStatIndex.BlockStat;
+import com.changyo.core.db.BlockStatIndex.FixedFee;
+import com.changyo.core.db.DynamicPropertiesStore;
+import com.changyo.core.db.Manager;
+import com.changyo.core.exception.ContractValidateException;
+
+/**
+ * Evaluates a proposal parameter map without writing anything.
+ *
+ * <p>Every parameter is validated as ProposalCreateActuator would and compared with the current
+ * value. Over a window of recent blocks, taken from the block stat index, it reports the
+ * observed transactions and fees, the change in fees the proposed values would have charged and
+ * the change in newly issued supply that the proposed witness pay and standby allowance would
+ * have produced. Energy and bandwidth fees are scaled by the proposed unit prices, flat fees
+ * are counted per transaction kind. The window ends at the latest solidified block and only
+ * reads the records the index already holds, stopping at the first block without one, so a
+ * request never decodes blocks. Only the store getters are read, so it never holds a lock that
+ * block processing needs.</p>
+ */
+@Slf4j(topic = "API")
+@Component
+public class ProposalDryRun {
+
+  public static final long MAX_WINDOW = 28_800;
+
+  @Autowired
+  private Manager dbManager;
+
+  @Autowired
+  private BlockStatIndex blockStatIndex;
+
+  public Result run(Map<Long, String> parameters, long window) {
+    DynamicPropertiesStore store = dbManager.getDynamicPropertiesStore();
+    List<ParameterChange> changes = new ArrayList<>(parameters.size());
+    // in proposal order, as apply() writes them
+    Map<Long, String> validParameters = new LinkedHashMap<>();
+    for (Map.Entry<Long, String> entry : parameters.entrySet()) {
+      ParameterChange change = evaluate(entry.getKey(), entry.getValue(), store);
+      changes.add(change);
+      if (change.isValid()) {
+        validParameters.put(entry.getKey(), entry.getValue());
+      }
+    }
+    Map<Long, String> proposed = ChainParameterRegistry.effectiveParameters(validParameters);
+
+    window = Math.max(1, Math.min(window, MAX_WINDOW));
+    // newest first
+    long blocks = 0;
+    long transactions = 0;
+    long totalFee = 0;
+    long energyFee = 0;
+    long netFee = 0;
+    boolean feeKnown = true;
+    long[] fixedFeeCounts = new long[FixedFee.values().length];
+    for (long num = store.getLatestSolidifiedBlockNum(); num >= 0 && blocks < window; num--) {
+      BlockStat stat = blockStatIndex.getIndexed(num);
+      if (stat == null) {
+        break;
+      }
+      blocks++;
+      transactions += stat.getTxCount();
+      feeKnown &= stat.isFeeKnown();
+      totalFee += stat.getTotalFee();
+      energyFee += stat.getEnergyFee();
+      netFee += stat.getNetFee();
+      for (FixedFee fixedFee : FixedFee.values()) {
+        fixedFeeCounts[fixedFee.ordinal()] += stat.getFixedFeeCount(fixedFee);
+      }
+    }
+
+    long feeDelta = scale(energyFee, proposed, ChainParameters.ENERGY_FEE, store)
+        + scale(netFee, proposed, ChainParameters.TRANSACTION_FEE, store);
+    for (FixedFee fixedFee : FixedFee.values()) {
+      feeDelta += fixedFeeCounts[fixedFee.ordinal()]
+          * delta(proposed, fixedFee.getParameter(), current(fixedFee.getParameter(), store));
+    }
+
+    long payDelta = delta(proposed, ChainParameters.WITNESS_PAY_PER_BLOCK,
+        store.getWitnessPayPerBlock());
+    long allowanceDelta = delta(proposed, ChainParameters.WITNESS_STANDBY_ALLOWANCE,
+        store.getWitnessStandbyAllowance());
+    long maintenanceTimeInterval = proposedOrCurrent(proposed,
+        ChainParameters.MAINTENANCE_TIME_INTERVAL, store.getMaintenanceTimeInterval());
+    long maintenances = blocks * ChainConstant.BLOCK_PRODUCED_INTERVAL / maintenanceTimeInterval;
+    long supplyDelta = payDelta * blocks + allowanceDelta * maintenances;
+
+    return new Result(changes, blocks, transactions, feeKnown, totalFee, feeDelta, supplyDelta);
+  }
+
+  /**
+   * Change of a fee charged per resource unit when the unit price moves to its proposed value.
+   */
+  private static long scale(long fee, Map<Long, String> proposed, ChainParameters price,
+      DynamicPropertiesStore store) {
+    long currentPrice = current(price, store);
+    long proposedPrice = proposedOrCurrent(proposed, price, currentPrice);
+    if (currentPrice <= 0 || proposedPrice == currentPrice) {
+      return 0;
+    }
+    return (long) ((double) fee * proposedPrice / currentPrice) - fee;
+  }
+
+  private static long current(ChainParameters parameter, DynamicPropertiesStore store) {
+    Long value = parseLong(ChainParameterRegistry.get(parameter).read(store));
+    return value == null ? 0 : value;
+  }
+
+  private ParameterChange evaluate(long id, String value, DynamicPropertiesStore store) {
+    ChainParameterRegistry.Descriptor<?> descriptor = ChainParameterRegistry.get(id);
+    if (descriptor == null) {
+      return new ParameterChange(id, null, null, null, false, "Bad chain parameter id");
+    }
+    try {
+      descriptor.validate(value, dbManager, null);
+      return new ParameterChange(id, descriptor.getKey(), descriptor.read(store),
+          descriptor.format(value), true, null);
+    } catch (ContractValidateException | RuntimeException e) {
+      return new ParameterChange(id, descriptor.getKey(), descriptor.read(store), value, false,
+          e.getMessage());
+    }
+  }
+
+  private static long delta(Map<Long, String> parameters, ChainParameters parameter,
+      long current) {
+    return proposedOrCurrent(parameters, parameter, current) - current;
+  }
+
+  private static long proposedOrCurrent(Map<Long, String> parameters, ChainParameters parameter,
+      long current) {
+    Long value = parseLong(parameters.get((long) parameter.ordinal()));
+    return value == null ? current : value;
+  }
+
+  /**
+   * Null for a missing or non-numeric value, such as one that fell through to an address
+   * parameter.
+   */
+  private static Long parseLong(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class ParameterChange {
+
+    private final long id;
+    private final String key;
+    private final String currentValue;
+    private final String proposedValue;
+    private final boolean valid;
+    private final String message;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class Result {
+
+    private final List<ParameterChange> parameters;
+    // blocks of the window found in the block stat index
+    private final long blocks;
+    private final long transactions;
+    // false when the fees of some blocks are incomplete, see BlockStat#isFeeKnown()
+    private final boolean feeKnown;
+    private final long totalFee;
+    // extra fees the proposal would have charged over those blocks
+    private final long feeDelta;
+    // extra supply the proposal would have issued over those blocks
+    private final long supplyDelta;
+  }
+}
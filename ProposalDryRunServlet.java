@@ -0,0 +1,90 @@
+package com.changyo.core.services.http;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import java.io.IOException;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.core.ProposalDryRun;
+import com.changyo.core.ProposalDryRun.ParameterChange;
+import com.changyo.core.ProposalDryRun.Result;
+import com.changyo.protos.Contract.ProposalCreateContract;
+
+
+@Component
+@Slf4j(topic = "API")
+public class ProposalDryRunServlet extends HttpServlet {
+
+  private static final long DEFAULT_WINDOW = 1200;
+
+  @Autowired
+  private ProposalDryRun proposalDryRun;
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    try {
+      String contract = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(contract);
+      ProposalCreateContract.Builder build = ProposalCreateContract.newBuilder();
+      JsonFormat.merge(contract, build);
+      Result result = proposalDryRun.run(build.getParametersMap(),
+          parseWindow(request.getParameter("window")));
+
+      JSONArray parameters = new JSONArray();
+      for (ParameterChange change : result.getParameters()) {
+        JSONObject parameter = new JSONObject();
+        parameter.put("id", change.getId());
+        parameter.put("key", change.getKey());
+        parameter.put("currentValue", change.getCurrentValue());
+        parameter.put("proposedValue", change.getProposedValue());
+        parameter.put("valid", change.isValid());
+        if (change.getMessage() != null) {
+          parameter.put("message", change.getMessage());
+        }
+        parameters.add(parameter);
+      }
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.put("parameters", parameters);
+      jsonObject.put("blocks", result.getBlocks());
+      jsonObject.put("transactions", result.getTransactions());
+      jsonObject.put("feeKnown", result.isFeeKnown());
+      jsonObject.put("totalFee", result.getTotalFee());
+      jsonObject.put("feeDelta", result.getFeeDelta());
+      jsonObject.put("supplyDelta", result.getSupplyDelta());
+      response.getWriter().println(jsonObject.toJSONString());
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+
+  private static long parseWindow(String window) {
+    if (StringUtils.isEmpty(window)) {
+      return DEFAULT_WINDOW;
+    }
+    try {
+      long value = Long.parseLong(window);
+      if (value > 0 && value <= ProposalDryRun.MAX_WINDOW) {
+        return value;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException(
+        "window must be a number of blocks from 1 to " + ProposalDryRun.MAX_WINDOW);
+  }
+}
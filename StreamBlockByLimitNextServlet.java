@@ -0,0 +1,92 @@
+package com.changyo.core.services.http;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.changyo.api.GrpcAPI.BlockLimit;
+import com.changyo.core.Wallet;
+
+/**
+ * Streams blocks [startNum, endNum) with chunked transfer encoding, writing each block as soon
+ * as it is read. With binary=true in the query string every block is written as its stored
+ * bytes, prefixed with a varint length (the framing of Message.writeDelimitedTo); otherwise the
+ * response is a JSON array of blocks. An invalid range gets the usual JSON error on both.
+ */
+@Component
+@Slf4j(topic = "API")
+public class StreamBlockByLimitNextServlet extends HttpServlet {
+
+  @Autowired
+  private Wallet wallet;
+
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+    doPost(request, response);
+  }
+
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+    boolean started = false;
+    try {
+      String input = request.getReader().lines()
+          .collect(Collectors.joining(System.lineSeparator()));
+      Util.checkBodySize(input);
+      BlockLimit.Builder build = BlockLimit.newBuilder();
+      JsonFormat.merge(input, build);
+      long startNum = build.getStartNum();
+      long endNum = build.getEndNum();
+      wallet.checkBlockStreamRange(startNum, endNum);
+
+      if (Boolean.parseBoolean(request.getParameter("binary"))) {
+        response.setContentType("application/octet-stream");
+        OutputStream out = response.getOutputStream();
+        byte[] header = new byte[CodedOutputStream.computeUInt32SizeNoTag(Integer.MAX_VALUE)];
+        started = true;
+        wallet.streamBlockBytesByLimitNext(startNum, endNum, data -> {
+          try {
+            CodedOutputStream codedOut = CodedOutputStream.newInstance(header);
+            codedOut.writeUInt32NoTag(data.length);
+            out.write(header, 0, header.length - codedOut.spaceLeft());
+            out.write(data);
+            out.flush();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        return;
+      }
+
+      PrintWriter writer = response.getWriter();
+      boolean[] first = {true};
+      writer.print("[");
+      started = true;
+      wallet.streamBlocksByLimitNext(startNum, endNum, block -> {
+        if (!first[0]) {
+          writer.print(",");
+        }
+        first[0] = false;
+        writer.print(Util.printBlock(block));
+        writer.flush();
+      });
+      writer.println("]");
+    } catch (Exception e) {
+      logger.debug("Exception: {}", e.getMessage());
+      if (started) {
+        // part of the body is already on the wire, the client sees a truncated stream
+        return;
+      }
+      try {
+        response.getWriter().println(Util.printErrorMsg(e));
+      } catch (IOException | IllegalStateException ioe) {
+        logger.debug("IOException: {}", ioe.getMessage());
+      }
+    }
+  }
+}
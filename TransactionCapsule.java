@@ -105,6 +105,9 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   @Setter
   private TransactionTrace trxTrace;
 
+  // hash of the raw_data it was computed from, reused until raw_data is replaced
+  private RawHash rawHash;
+
   /**
    * constructor TransactionCapsule.
    */
@@ -255,7 +258,29 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   }
 
   private Sha256Hash getRawHash() {
-    return Sha256Hash.of(this.transaction.getRawData().toByteArray());
+    raw rawData = this.transaction.getRawData();
+    RawHash current = this.rawHash;
+    if (current == null || current.rawData != rawData) {
+      current = new RawHash(rawData, Sha256Hash.of(rawData.toByteArray()));
+      this.rawHash = current;
+    }
+    return current.hash;
+  }
+
+  /**
+   * Protobuf messages are immutable, so the same raw_data instance always serializes to the
+   * same bytes. Setting signatures or results keeps the instance; setReference, setExpiration
+   * and setTimestamp replace it.
+   */
+  private static class RawHash {
+
+    private final raw rawData;
+    private final Sha256Hash hash;
+
+    private RawHash(raw rawData, Sha256Hash hash) {
+      this.rawData = rawData;
+      this.hash = hash;
+    }
   }
 
   public void sign(byte[] privateKey) {
@@ -336,11 +361,22 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
       }
     }
     List<ByteString> approveList = new ArrayList<>();
-    ECKey ecKey = ECKey.fromPrivate(privateKey);
-    byte[] address = ecKey.getAddress();
     if (this.transaction.getSignatureCount() > 0) {
       checkWeight(permission, this.transaction.getSignatureList(), this.getRawHash().getBytes(),
           approveList);
+    }
+    addSign(privateKey, permission, approveList);
+  }
+
+  /**
+   * Signs under a permission that has already been resolved and checked, given the signers of
+   * the existing signatures.
+   */
+  public void addSign(byte[] privateKey, Permission permission, List<ByteString> approveList)
+      throws PermissionException {
+    ECKey ecKey = ECKey.fromPrivate(privateKey);
+    byte[] address = ecKey.getAddress();
+    if (this.transaction.getSignatureCount() > 0) {
       if (approveList.contains(ByteString.copyFrom(address))) {
         throw new PermissionException(Wallet.encode58Check(address) + " had signed!");
       }
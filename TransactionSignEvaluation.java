@@ -0,0 +1,223 @@
+package com.changyo.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Ints;
+import com.google.protobuf.ByteString;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import com.changyo.common.crypto.ECKey;
+import com.changyo.common.utils.ByteArray;
+import com.changyo.common.utils.Sha256Hash;
+import com.changyo.core.capsule.AccountCapsule;
+import com.changyo.core.capsule.TransactionCapsule;
+import com.changyo.core.db.AccountStore;
+import com.changyo.core.exception.PermissionException;
+import com.changyo.core.exception.SignatureFormatException;
+import com.changyo.protos.Protocol.Permission;
+import com.changyo.protos.Protocol.Permission.PermissionType;
+import com.changyo.protos.Protocol.Transaction;
+import com.changyo.protos.Protocol.Transaction.Contract;
+
+/**
+ * Signature state of one transaction, shared by getTransactionSignWeight,
+ * getTransactionApprovedList and addSign.
+ *
+ * <p>The txid is hashed once, and the owner account and permission are resolved at most once
+ * per evaluation. Recovering the signers is the expensive part and depends only on the txid and
+ * the signatures, so it is kept for a few seconds keyed by txid plus signature count; a
+ * coordinator polling the same pending transaction reuses it until a signature is added. The
+ * checks and messages are the same as TransactionCapsule.checkWeight and addSign.</p>
+ */
+public final class TransactionSignEvaluation {
+
+  private static final int CACHE_SIZE = 10_000;
+  private static final long CACHE_EXPIRE_MS = 3_000L;
+
+  private static final Cache<ByteString, Recovery> RECOVERIES = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE).expireAfterWrite(CACHE_EXPIRE_MS, TimeUnit.MILLISECONDS).build();
+
+  @Getter
+  private final Transaction transaction;
+  @Getter
+  private final byte[] txid;
+  private final AccountStore accountStore;
+
+  private AccountCapsule account;
+  private Permission permission;
+  private Recovery recovery;
+
+  private TransactionSignEvaluation(Transaction transaction, byte[] txid,
+      AccountStore accountStore) {
+    this.transaction = transaction;
+    this.txid = txid;
+    this.accountStore = accountStore;
+  }
+
+  public static TransactionSignEvaluation evaluate(Transaction transaction,
+      AccountStore accountStore) {
+    return new TransactionSignEvaluation(transaction,
+        Sha256Hash.hash(transaction.getRawData().toByteArray()), accountStore);
+  }
+
+  /**
+   * Same as {@link #evaluate(Transaction, AccountStore)}, reusing the txid the capsule has
+   * already computed.
+   */
+  public static TransactionSignEvaluation evaluate(TransactionCapsule trx,
+      AccountStore accountStore) {
+    return new TransactionSignEvaluation(trx.getInstance(), trx.getTransactionId().getBytes(),
+        accountStore);
+  }
+
+  public AccountCapsule getAccount() throws PermissionException {
+    if (account == null) {
+      Contract contract = transaction.getRawData().getContract(0);
+      account = accountStore.get(TransactionCapsule.getOwner(contract));
+      if (account == null) {
+        throw new PermissionException("Account is not exist!");
+      }
+    }
+    return account;
+  }
+
+  /**
+   * Returns the permission the transaction is signed under, after checking its type and
+   * operations.
+   */
+  public Permission getPermission() throws PermissionException {
+    if (permission == null) {
+      Contract contract = transaction.getRawData().getContract(0);
+      int permissionId = contract.getPermissionId();
+      Permission found = getAccount().getPermissionById(permissionId);
+      if (found == null) {
+        throw new PermissionException("permission isn't exit");
+      }
+      if (permissionId != 0) {
+        if (found.getType() != PermissionType.Active) {
+          throw new PermissionException("Permission type is error");
+        }
+        //check oprations
+        if (!Wallet.checkPermissionOprations(found, contract)) {
+          throw new PermissionException("Permission denied");
+        }
+      }
+      permission = found;
+    }
+    return permission;
+  }
+
+  /**
+   * Returns the address recovered from every signature, in signature order, without checking
+   * them against the permission.
+   */
+  public List<ByteString> getApprovedList() throws SignatureFormatException, SignatureException {
+    Recovery result = getRecovery();
+    result.throwIfFailed();
+    return result.signers;
+  }
+
+  /**
+   * Same as TransactionCapsule.checkWeight against {@link #getPermission()}: returns the total
+   * weight of the signatures and adds their signers to approveList if it is not null.
+   */
+  public long checkWeight(List<ByteString> approveList)
+      throws PermissionException, SignatureFormatException, SignatureException {
+    Permission checked = getPermission();
+    List<ByteString> sigs = transaction.getSignatureList();
+    if (sigs.size() > checked.getKeysCount()) {
+      throw new PermissionException(
+          "Signature count is " + (sigs.size()) + " more than key counts of permission : "
+              + checked.getKeysCount());
+    }
+
+    Recovery result = getRecovery();
+    Set<String> signed = new HashSet<>();
+    long currentWeight = 0;
+    for (int i = 0; i < sigs.size(); i++) {
+      if (i == result.signers.size()) {
+        result.throwIfFailed();
+      }
+      ByteString sig = sigs.get(i);
+      byte[] address = result.signers.get(i).toByteArray();
+      long weight = TransactionCapsule.getWeight(checked, address);
+      if (weight == 0) {
+        throw new PermissionException(
+            ByteArray.toHexString(sig.toByteArray()) + " is signed by " + Wallet
+                .encode58Check(address) + " but it is not contained of permission.");
+      }
+      if (!signed.add(TransactionCapsule.getBase64FromByteString(sig))) {
+        throw new PermissionException(Wallet.encode58Check(address) + " has signed twice!");
+      }
+      if (approveList != null) {
+        approveList.add(result.signers.get(i));
+      }
+      currentWeight += weight;
+    }
+    return currentWeight;
+  }
+
+  private Recovery getRecovery() {
+    if (recovery != null) {
+      return recovery;
+    }
+    List<ByteString> sigs = transaction.getSignatureList();
+    ByteString key = ByteString.copyFrom(txid)
+        .concat(ByteString.copyFrom(Ints.toByteArray(sigs.size())));
+    Recovery cached = RECOVERIES.getIfPresent(key);
+    if (cached != null && cached.signatures.equals(sigs)) {
+      recovery = cached;
+      return recovery;
+    }
+    recovery = Recovery.recover(txid, sigs);
+    RECOVERIES.put(key, recovery);
+    return recovery;
+  }
+
+  private static class Recovery {
+
+    private final List<ByteString> signatures;
+    // one per signature up to the first failure
+    private final List<ByteString> signers;
+    private final Exception failure;
+
+    private Recovery(List<ByteString> signatures, List<ByteString> signers, Exception failure) {
+      this.signatures = signatures;
+      this.signers = signers;
+      this.failure = failure;
+    }
+
+    static Recovery recover(byte[] hash, List<ByteString> sigs) {
+      List<ByteString> signers = new ArrayList<>(sigs.size());
+      Exception failure = null;
+      for (ByteString sig : sigs) {
+        if (sig.size() < 65) {
+          failure = new SignatureFormatException("Signature size is " + sig.size());
+          break;
+        }
+        try {
+          String base64 = TransactionCapsule.getBase64FromByteString(sig);
+          signers.add(ByteString.copyFrom(ECKey.signatureToAddress(hash, base64)));
+        } catch (SignatureException e) {
+          failure = e;
+          break;
+        }
+      }
+      return new Recovery(new ArrayList<>(sigs), Collections.unmodifiableList(signers), failure);
+    }
+
+    void throwIfFailed() throws SignatureFormatException, SignatureException {
+      if (failure instanceof SignatureFormatException) {
+        throw (SignatureFormatException) failure;
+      } else if (failure instanceof SignatureException) {
+        throw (SignatureException) failure;
+      }
+    }
+  }
+}
@@ -337,9 +337,10 @@ public class Util {
     JSONObject rawData = JSONObject.parseObject(jsonTransaction.get("raw_data").toString());
     rawData.put("contract", contracts);
     jsonTransaction.put("raw_data", rawData);
-    String rawDataHex = ByteArray.toHexString(transaction.getRawData().toByteArray());
+    byte[] rawDataBytes = transaction.getRawData().toByteArray();
+    String rawDataHex = ByteArray.toHexString(rawDataBytes);
     jsonTransaction.put("raw_data_hex", rawDataHex);
-    String txID = ByteArray.toHexString(Sha256Hash.hash(transaction.getRawData().toByteArray()));
+    String txID = ByteArray.toHexString(Sha256Hash.hash(rawDataBytes));
     jsonTransaction.put("txID", txID);
     return jsonTransaction;
   }
@@ -18,23 +18,35 @@
 
 package com.changyo.core;
 
+import static com.changyo.core.config.Parameter.DatabaseConstants.ACCOUNT_COUNT_LIMIT_MAX;
+import static com.changyo.core.config.Parameter.DatabaseConstants.ASSET_ISSUE_COUNT_LIMIT_MAX;
 import static com.changyo.core.config.Parameter.DatabaseConstants.EXCHANGE_COUNT_LIMIT_MAX;
 import static com.changyo.core.config.Parameter.DatabaseConstants.PROPOSAL_COUNT_LIMIT_MAX;
+import static com.changyo.core.config.Parameter.DatabaseConstants.TRANSACTIONS_COUNT_LIMIT_MAX;
+import static com.changyo.core.config.Parameter.DatabaseConstants.WITNESS_COUNT_LIMIT_MAX;
 
 import com.google.common.base.CaseFormat;
-import com.google.common.collect.ContiguousSet;
-import com.google.common.collect.DiscreteDomain;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Range;
 import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
@@ -43,6 +55,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import com.changyo.api.GrpcAPI;
+import com.changyo.api.GrpcAPI.AccountList;
 import com.changyo.api.GrpcAPI.AccountNetMessage;
 import com.changyo.api.GrpcAPI.AccountResourceMessage;
 import com.changyo.api.GrpcAPI.Address;
@@ -56,9 +69,11 @@ import com.changyo.api.GrpcAPI.NumberMessage;
 import com.changyo.api.GrpcAPI.ProposalList;
 import com.changyo.api.GrpcAPI.Return;
 import com.changyo.api.GrpcAPI.Return.response_code;
+import com.changyo.api.GrpcAPI.ReturnList;
 import com.changyo.api.GrpcAPI.TransactionApprovedList;
 import com.changyo.api.GrpcAPI.TransactionExtention;
 import com.changyo.api.GrpcAPI.TransactionExtention.Builder;
+import com.changyo.api.GrpcAPI.TransactionInfoList;
 import com.changyo.api.GrpcAPI.TransactionSignWeight;
 import com.changyo.api.GrpcAPI.TransactionSignWeight.Result;
 import com.changyo.api.GrpcAPI.WitnessList;
@@ -68,12 +83,8 @@ import com.changyo.common.overlay.discover.node.NodeHandler;
 import com.changyo.common.overlay.discover.node.NodeManager;
 import com.changyo.common.overlay.message.Message;
 import com.changyo.common.runtime.Runtime;
-import com.changyo.common.runtime.RuntimeImpl;
-import com.changyo.common.runtime.config.VMConfig;
 import com.changyo.common.runtime.vm.program.ProgramResult;
-import com.changyo.common.runtime.vm.program.invoke.ProgramInvokeFactoryImpl;
-import com.changyo.common.storage.DepositImpl;
-import com.changyo.common.utils.Base58;
+import com.changyo.common.utils.Base58Check;
 import com.changyo.common.utils.ByteArray;
 import com.changyo.common.utils.Sha256Hash;
 import com.changyo.common.utils.Utils;
@@ -88,6 +99,7 @@ import com.changyo.core.capsule.DelegatedResourceAccountIndexCapsule;
 import com.changyo.core.capsule.DelegatedResourceCapsule;
 import com.changyo.core.capsule.ExchangeCapsule;
 import com.changyo.core.capsule.ProposalCapsule;
+import com.changyo.core.capsule.ProtoCapsule;
 import com.changyo.core.capsule.TransactionCapsule;
 import com.changyo.core.capsule.TransactionInfoCapsule;
 import com.changyo.core.capsule.TransactionResultCapsule;
@@ -96,10 +108,14 @@ import com.changyo.core.config.Parameter.ChainConstant;
 import com.changyo.core.config.args.Args;
 import com.changyo.core.db.AccountIdIndexStore;
 import com.changyo.core.db.AccountStore;
+import com.changyo.core.db.AssetIssueOwnerIndex;
+import com.changyo.core.db.BlockStatIndex;
+import com.changyo.core.db.BlockStatIndex.BlockStat;
 import com.changyo.core.db.GasProcessor;
 import com.changyo.core.db.ContractStore;
 import com.changyo.core.db.EnergyProcessor;
 import com.changyo.core.db.Manager;
+import com.changyo.core.db.TronStoreWithRevoking;
 import com.changyo.core.exception.AccountResourceInsufficientException;
 import com.changyo.core.exception.ContractExeException;
 import com.changyo.core.exception.ContractValidateException;
@@ -114,7 +130,7 @@ import com.changyo.core.exception.TooBigTransactionException;
 import com.changyo.core.exception.TransactionExpirationException;
 import com.changyo.core.exception.VMIllegalException;
 import com.changyo.core.exception.ValidateSignatureException;
-import com.changyo.core.net.TronNetDelegate;
+import com.changyo.core.net.EffectivePeerCounter;
 import com.changyo.core.net.TronNetService;
 import com.changyo.core.net.message.TransactionMessage;
 import com.changyo.protos.Contract.AssetIssueContract;
@@ -127,7 +143,6 @@ import com.changyo.protos.Protocol.Block;
 import com.changyo.protos.Protocol.DelegatedResourceAccountIndex;
 import com.changyo.protos.Protocol.Exchange;
 import com.changyo.protos.Protocol.Permission;
-import com.changyo.protos.Protocol.Permission.PermissionType;
 import com.changyo.protos.Protocol.Proposal;
 import com.changyo.protos.Protocol.SmartContract;
 import com.changyo.protos.Protocol.SmartContract.ABI;
@@ -148,15 +163,36 @@ public class Wallet {
   @Autowired
   private TronNetService tronNetService;
   @Autowired
-  private TronNetDelegate tronNetDelegate;
-  @Autowired
   private Manager dbManager;
   @Autowired
   private NodeManager nodeManager;
+  @Autowired
+  private ConstantCallExecutor constantCallExecutor;
+  @Autowired
+  private EffectivePeerCounter effectivePeerCounter;
+  @Autowired
+  private BlockStatIndex blockStatIndex;
+  @Autowired
+  private AssetIssueOwnerIndex assetIssueOwnerIndex;
   private static String addressPreFixString = Constant.ADD_PRE_FIX_STRING_MAINNET;  //default testnet
   private static byte addressPreFixByte = Constant.ADD_PRE_FIX_BYTE_MAINNET;
 
+  // first byte of a list cursor, so that a cursor is only accepted by the store that issued it
+  private static final byte CURSOR_WITNESS = 1;
+  private static final byte CURSOR_PROPOSAL = 2;
+  private static final byte CURSOR_EXCHANGE = 3;
+  private static final byte CURSOR_EXCHANGE_V2 = 4;
+  private static final byte CURSOR_ASSET_ISSUE = 5;
+  private static final byte CURSOR_ASSET_ISSUE_V2 = 6;
+
+  private static final long BLOCK_STAT_LIMIT_NUM = 10_000;
+  // transactions of a batch broadcast pushed per acquisition of the manager lock
+  private static final int BROADCAST_LOCK_CHUNK = 100;
+
   private int minEffectiveConnection = Args.getInstance().getMinEffectiveConnection();
+  private long blockStreamLimit = Args.getInstance().getBlockStreamLimit();
+
+  private volatile Long genesisTimeStamp;
 
   /**
    * Creates a new Wallet with a random ECKey.
@@ -231,30 +267,11 @@ public class Wallet {
   }
 
   public static String encode58Check(byte[] input) {
-    byte[] hash0 = Sha256Hash.hash(input);
-    byte[] hash1 = Sha256Hash.hash(hash0);
-    byte[] inputCheck = new byte[input.length + 4];
-    System.arraycopy(input, 0, inputCheck, 0, input.length);
-    System.arraycopy(hash1, 0, inputCheck, input.length, 4);
-    return Base58.encode(inputCheck);
+    return Base58Check.encode58Check(input);
   }
 
   private static byte[] decode58Check(String input) {
-    byte[] decodeCheck = Base58.decode(input);
-    if (decodeCheck.length <= 4) {
-      return null;
-    }
-    byte[] decodeData = new byte[decodeCheck.length - 4];
-    System.arraycopy(decodeCheck, 0, decodeData, 0, decodeData.length);
-    byte[] hash0 = Sha256Hash.hash(decodeData);
-    byte[] hash1 = Sha256Hash.hash(hash0);
-    if (hash1[0] == decodeCheck[decodeData.length] &&
-        hash1[1] == decodeCheck[decodeData.length + 1] &&
-        hash1[2] == decodeCheck[decodeData.length + 2] &&
-        hash1[3] == decodeCheck[decodeData.length + 3]) {
-      return decodeData;
-    }
-    return null;
+    return Base58Check.decode58Check(input);
   }
 
   public static byte[] generateContractAddress(Transaction trx) {
@@ -315,21 +332,50 @@ public class Wallet {
     if (accountCapsule == null) {
       return null;
     }
-    GasProcessor processor = new GasProcessor(dbManager);
-    processor.updateUsage(accountCapsule);
+    return buildAccount(accountCapsule);
+  }
 
-    EnergyProcessor energyProcessor = new EnergyProcessor(dbManager);
-    energyProcessor.updateUsage(accountCapsule);
+  /*
+  input
+  addresses: at most ACCOUNT_COUNT_LIMIT_MAX
+  return
+  one account per address in the same order, an unknown address gives an empty account
+   */
+  public AccountList getAccounts(List<ByteString> addresses) {
+    if (CollectionUtils.isEmpty(addresses) || addresses.size() > ACCOUNT_COUNT_LIMIT_MAX) {
+      return null;
+    }
+    List<byte[]> keys = new ArrayList<>(addresses.size());
+    addresses.forEach(address -> keys.add(address.toByteArray()));
+
+    AccountList.Builder builder = AccountList.newBuilder();
+    getEach(dbManager.getAccountStore(), keys).forEach(accountCapsule -> builder.addAccounts(
+        accountCapsule == null ? Account.getDefaultInstance() : buildAccount(accountCapsule)));
+    return builder.build();
+  }
+
+  private Account buildAccount(AccountCapsule accountCapsule) {
+    return AccountView.toAbsoluteTime(decayUsage(accountCapsule), getGenesisTimeStamp()).build();
+  }
+
+  private Account.Builder decayUsage(AccountCapsule accountCapsule) {
+    return AccountView.decayUsage(accountCapsule.getInstance(), getHeadSlot(),
+        dbManager.getDynamicPropertiesStore().getAllowSameTokenName() != 0);
+  }
 
-    long genesisTimeStamp = dbManager.getGenesisBlock().getTimeStamp();
-    accountCapsule.setLatestConsumeTime(genesisTimeStamp
-        + ChainConstant.BLOCK_PRODUCED_INTERVAL * accountCapsule.getLatestConsumeTime());
-    accountCapsule.setLatestConsumeFreeTime(genesisTimeStamp
-        + ChainConstant.BLOCK_PRODUCED_INTERVAL * accountCapsule.getLatestConsumeFreeTime());
-    accountCapsule.setLatestConsumeTimeForEnergy(genesisTimeStamp
-        + ChainConstant.BLOCK_PRODUCED_INTERVAL * accountCapsule.getLatestConsumeTimeForEnergy());
+  private long getGenesisTimeStamp() {
+    Long timeStamp = genesisTimeStamp;
+    if (timeStamp == null) {
+      timeStamp = dbManager.getGenesisBlock().getTimeStamp();
+      genesisTimeStamp = timeStamp;
+    }
+    return timeStamp;
+  }
 
-    return accountCapsule.getInstance();
+  // same as WitnessController.getHeadSlot, without loading the genesis block
+  private long getHeadSlot() {
+    return (dbManager.getDynamicPropertiesStore().getLatestBlockHeaderTimestamp()
+        - getGenesisTimeStamp()) / ChainConstant.BLOCK_PRODUCED_INTERVAL;
   }
 
 
@@ -344,13 +390,7 @@ public class Wallet {
     if (accountCapsule == null) {
       return null;
     }
-    GasProcessor processor = new GasProcessor(dbManager);
-    processor.updateUsage(accountCapsule);
-
-    EnergyProcessor energyProcessor = new EnergyProcessor(dbManager);
-    energyProcessor.updateUsage(accountCapsule);
-
-    return accountCapsule.getInstance();
+    return decayUsage(accountCapsule).build();
   }
 
   /**
@@ -413,44 +453,125 @@ public class Wallet {
    * Broadcast a transaction.
    */
   public GrpcAPI.Return broadcastTransaction(Transaction signaturedTransaction) {
-    GrpcAPI.Return.Builder builder = GrpcAPI.Return.newBuilder();
     TransactionCapsule trx = new TransactionCapsule(signaturedTransaction);
-    Message message = new TransactionMessage(signaturedTransaction);
+    GrpcAPI.Return admission = checkBroadcastAdmission(trx);
+    if (admission != null) {
+      return admission;
+    }
+    return pushAndBroadcast(trx);
+  }
 
-    try {
-      if (minEffectiveConnection != 0) {
-        if (tronNetDelegate.getActivePeer().isEmpty()) {
-          logger.warn("Broadcast transaction {} failed, no connection.", trx.getTransactionId());
-          return builder.setResult(false).setCode(response_code.NO_CONNECTION)
-              .setMessage(ByteString.copyFromUtf8("no connection"))
-              .build();
+  /**
+   * Broadcasts a batch of signed transactions. Signatures are verified in parallel. The batch is
+   * then pushed in chunks of {@link #BROADCAST_LOCK_CHUNK}: the manager lock is taken once per
+   * chunk, and every transaction in it goes through the admission checks and the push under
+   * that lock, so pushTransaction only re-enters it. Between two chunks the lock is released,
+   * so a large batch cannot hold off block production. The network layer collects broadcast
+   * transactions into combined inventory messages on its own. One result is returned per
+   * transaction, in order.
+   */
+  public ReturnList broadcastTransactions(List<Transaction> signaturedTransactions) {
+    ReturnList.Builder builder = ReturnList.newBuilder();
+    if (signaturedTransactions.size() > TRANSACTIONS_COUNT_LIMIT_MAX) {
+      GrpcAPI.Return tooMany = GrpcAPI.Return.newBuilder().setResult(false)
+          .setCode(response_code.OTHER_ERROR)
+          .setMessage(ByteString.copyFromUtf8(
+              "too many transactions, limit is " + TRANSACTIONS_COUNT_LIMIT_MAX))
+          .build();
+      signaturedTransactions.forEach(trx -> builder.addResult(tooMany));
+      return builder.build();
+    }
+    if (signaturedTransactions.isEmpty()) {
+      return builder.build();
+    }
+
+    List<TransactionCapsule> trxList = new ArrayList<>(signaturedTransactions.size());
+    signaturedTransactions.forEach(trx -> trxList.add(new TransactionCapsule(trx)));
+
+    // skip the signature work when the node would turn the whole batch away
+    GrpcAPI.Return admission = checkBroadcastAdmission(trxList.get(0));
+    if (admission != null) {
+      trxList.forEach(trx -> builder.addResult(admission));
+      return builder.build();
+    }
+
+    preValidateSignatures(trxList);
+    for (int from = 0; from < trxList.size(); from += BROADCAST_LOCK_CHUNK) {
+      List<TransactionCapsule> chunk =
+          trxList.subList(from, Math.min(trxList.size(), from + BROADCAST_LOCK_CHUNK));
+      synchronized (dbManager) {
+        for (TransactionCapsule trx : chunk) {
+          GrpcAPI.Return result = checkBroadcastAdmission(trx);
+          builder.addResult(result != null ? result : pushAndBroadcast(trx));
         }
+      }
+    }
+    return builder.build();
+  }
 
-        int count = (int) tronNetDelegate.getActivePeer().stream()
-            .filter(p -> !p.isNeedSyncFromUs() && !p.isNeedSyncFromPeer())
-            .count();
-
-        if (count < minEffectiveConnection) {
-          String info = "effective connection:" + count + " lt minEffectiveConnection:"
-              + minEffectiveConnection;
-          logger.warn("Broadcast transaction {} failed, {}.", trx.getTransactionId(), info);
-          return builder.setResult(false).setCode(response_code.NOT_ENOUGH_EFFECTIVE_CONNECTION)
-              .setMessage(ByteString.copyFromUtf8(info))
-              .build();
+  private void preValidateSignatures(List<TransactionCapsule> trxList) {
+    List<Future<?>> futures = new ArrayList<>(trxList.size());
+    for (TransactionCapsule trx : trxList) {
+      futures.add(ValidateSignServiceHolder.INSTANCE.submit(() -> {
+        try {
+          trx.validateSignature(dbManager);
+        } catch (ValidateSignatureException e) {
+          // left unverified, pushTransaction reports the error for this transaction
         }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        logger.debug("Pre-validate signature failed, {}.", e.getMessage());
       }
+    }
+  }
 
-      if (dbManager.isTooManyPending()) {
-        logger.warn("Broadcast transaction {} failed, too many pending.", trx.getTransactionId());
-        return builder.setResult(false).setCode(response_code.SERVER_BUSY).build();
+  private GrpcAPI.Return checkBroadcastAdmission(TransactionCapsule trx) {
+    GrpcAPI.Return.Builder builder = GrpcAPI.Return.newBuilder();
+    if (minEffectiveConnection != 0) {
+      if (effectivePeerCounter.getActivePeerCount() == 0) {
+        logger.warn("Broadcast transaction {} failed, no connection.", trx.getTransactionId());
+        return builder.setResult(false).setCode(response_code.NO_CONNECTION)
+            .setMessage(ByteString.copyFromUtf8("no connection"))
+            .build();
       }
 
-      if (dbManager.isGeneratingBlock()) {
-        logger
-            .warn("Broadcast transaction {} failed, is generating block.", trx.getTransactionId());
-        return builder.setResult(false).setCode(response_code.SERVER_BUSY).build();
+      int count = effectivePeerCounter.getEffectivePeerCount();
+
+      if (count < minEffectiveConnection) {
+        String info = "effective connection:" + count + " lt minEffectiveConnection:"
+            + minEffectiveConnection;
+        logger.warn("Broadcast transaction {} failed, {}.", trx.getTransactionId(), info);
+        return builder.setResult(false).setCode(response_code.NOT_ENOUGH_EFFECTIVE_CONNECTION)
+            .setMessage(ByteString.copyFromUtf8(info))
+            .build();
       }
+    }
 
+    if (dbManager.isTooManyPending()) {
+      logger.warn("Broadcast transaction {} failed, too many pending.", trx.getTransactionId());
+      return builder.setResult(false).setCode(response_code.SERVER_BUSY).build();
+    }
+
+    if (dbManager.isGeneratingBlock()) {
+      logger
+          .warn("Broadcast transaction {} failed, is generating block.", trx.getTransactionId());
+      return builder.setResult(false).setCode(response_code.SERVER_BUSY).build();
+    }
+    return null;
+  }
+
+  private GrpcAPI.Return pushAndBroadcast(TransactionCapsule trx) {
+    GrpcAPI.Return.Builder builder = GrpcAPI.Return.newBuilder();
+    Message message = new TransactionMessage(trx.getInstance());
+
+    try {
       if (dbManager.getTransactionIdCache().getIfPresent(trx.getTransactionId()) != null) {
         logger.warn("Broadcast transaction {} failed, is already exist.", trx.getTransactionId());
         return builder.setResult(false).setCode(response_code.DUP_TRANSACTION_ERROR).build();
@@ -523,7 +644,14 @@ public class Wallet {
       throws PermissionException, SignatureException, SignatureFormatException {
     byte[] privateKey = transactionSign.getPrivateKey().toByteArray();
     TransactionCapsule trx = new TransactionCapsule(transactionSign.getTransaction());
-    trx.addSign(privateKey, dbManager.getAccountStore());
+    TransactionSignEvaluation evaluation = TransactionSignEvaluation
+        .evaluate(trx, dbManager.getAccountStore());
+    Permission permission = evaluation.getPermission();
+    List<ByteString> approveList = new ArrayList<>();
+    if (transactionSign.getTransaction().getSignatureCount() > 0) {
+      evaluation.checkWeight(approveList);
+    }
+    trx.addSign(privateKey, permission, approveList);
     return trx;
   }
 
@@ -539,41 +667,23 @@ public class Wallet {
   }
 
   public TransactionSignWeight getTransactionSignWeight(Transaction trx) {
+    TransactionSignEvaluation evaluation = TransactionSignEvaluation
+        .evaluate(trx, dbManager.getAccountStore());
     TransactionSignWeight.Builder tswBuilder = TransactionSignWeight.newBuilder();
     TransactionExtention.Builder trxExBuilder = TransactionExtention.newBuilder();
     trxExBuilder.setTransaction(trx);
-    trxExBuilder.setTxid(ByteString.copyFrom(Sha256Hash.hash(trx.getRawData().toByteArray())));
+    trxExBuilder.setTxid(ByteString.copyFrom(evaluation.getTxid()));
     Return.Builder retBuilder = Return.newBuilder();
     retBuilder.setResult(true).setCode(response_code.SUCCESS);
     trxExBuilder.setResult(retBuilder);
     tswBuilder.setTransaction(trxExBuilder);
     Result.Builder resultBuilder = Result.newBuilder();
     try {
-      Contract contract = trx.getRawData().getContract(0);
-      byte[] owner = TransactionCapsule.getOwner(contract);
-      AccountCapsule account = dbManager.getAccountStore().get(owner);
-      if (account == null) {
-        throw new PermissionException("Account is not exist!");
-      }
-      int permissionId = contract.getPermissionId();
-      Permission permission = account.getPermissionById(permissionId);
-      if (permission == null) {
-        throw new PermissionException("permission isn't exit");
-      }
-      if (permissionId != 0) {
-        if (permission.getType() != PermissionType.Active) {
-          throw new PermissionException("Permission type is error");
-        }
-        //check oprations
-        if (!checkPermissionOprations(permission, contract)) {
-          throw new PermissionException("Permission denied");
-        }
-      }
+      Permission permission = evaluation.getPermission();
       tswBuilder.setPermission(permission);
       if (trx.getSignatureCount() > 0) {
         List<ByteString> approveList = new ArrayList<ByteString>();
-        long currentWeight = TransactionCapsule.checkWeight(permission, trx.getSignatureList(),
-            Sha256Hash.hash(trx.getRawData().toByteArray()), approveList);
+        long currentWeight = evaluation.checkWeight(approveList);
         tswBuilder.addAllApprovedList(approveList);
         tswBuilder.setCurrentWeight(currentWeight);
       }
@@ -600,10 +710,12 @@ public class Wallet {
   }
 
   public TransactionApprovedList getTransactionApprovedList(Transaction trx) {
+    TransactionSignEvaluation evaluation = TransactionSignEvaluation
+        .evaluate(trx, dbManager.getAccountStore());
     TransactionApprovedList.Builder tswBuilder = TransactionApprovedList.newBuilder();
     TransactionExtention.Builder trxExBuilder = TransactionExtention.newBuilder();
     trxExBuilder.setTransaction(trx);
-    trxExBuilder.setTxid(ByteString.copyFrom(Sha256Hash.hash(trx.getRawData().toByteArray())));
+    trxExBuilder.setTxid(ByteString.copyFrom(evaluation.getTxid()));
     Return.Builder retBuilder = Return.newBuilder();
     retBuilder.setResult(true).setCode(response_code.SUCCESS);
     trxExBuilder.setResult(retBuilder);
@@ -611,26 +723,10 @@ public class Wallet {
     TransactionApprovedList.Result.Builder resultBuilder = TransactionApprovedList.Result
         .newBuilder();
     try {
-      Contract contract = trx.getRawData().getContract(0);
-      byte[] owner = TransactionCapsule.getOwner(contract);
-      AccountCapsule account = dbManager.getAccountStore().get(owner);
-      if (account == null) {
-        throw new PermissionException("Account is not exist!");
-      }
+      evaluation.getAccount();
 
       if (trx.getSignatureCount() > 0) {
-        List<ByteString> approveList = new ArrayList<ByteString>();
-        byte[] hash = Sha256Hash.hash(trx.getRawData().toByteArray());
-        for (ByteString sig : trx.getSignatureList()) {
-          if (sig.size() < 65) {
-            throw new SignatureFormatException(
-                "Signature size is " + sig.size());
-          }
-          String base64 = TransactionCapsule.getBase64FromByteString(sig);
-          byte[] address = ECKey.signatureToAddress(hash, base64);
-          approveList.add(ByteString.copyFrom(address)); //out put approve list.
-        }
-        tswBuilder.addAllApprovedList(approveList);
+        tswBuilder.addAllApprovedList(evaluation.getApprovedList());
       }
       resultBuilder.setCode(TransactionApprovedList.Result.response_code.SUCCESS);
     } catch (SignatureFormatException signEx) {
@@ -676,16 +772,23 @@ public class Wallet {
   }
 
   public long getTransactionCountByBlockNum(long blockNum) {
-    long count = 0;
+    BlockStat stat = blockStatIndex.get(blockNum);
+    return stat == null ? 0 : stat.getTxCount();
+  }
 
-    try {
-      Block block = dbManager.getBlockByNum(blockNum).getInstance();
-      count = block.getTransactionsCount();
-    } catch (StoreException e) {
-      logger.error(e.getMessage());
+  /*
+  input
+  startNum, endNum: block range [startNum, endNum), at most BLOCK_STAT_LIMIT_NUM blocks
+  return
+  per block transaction count, size and fee, read from the block stat index and filled in for
+  blocks it has not recorded yet
+   */
+  public List<BlockStat> getBlockStatsByLimitNext(long startNum, long endNum) {
+    if (startNum < 0 || endNum <= startNum || endNum - startNum > BLOCK_STAT_LIMIT_NUM) {
+      return null;
     }
-
-    return count;
+    endNum = Math.min(endNum, dbManager.getHeadBlockNum() + 1);
+    return blockStatIndex.getRange(startNum, endNum);
   }
 
   public WitnessList getWitnessList() {
@@ -736,177 +839,11 @@ public class Wallet {
   }
 
   public Protocol.ChainParameters getChainParameters() {
-    Protocol.ChainParameters.Builder builder = Protocol.ChainParameters.newBuilder();
-
-    // MAINTENANCE_TIME_INTERVAL, //ms  ,0
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getMaintenanceTimeInterval")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getMaintenanceTimeInterval()))
-            .build());
-    //    ACCOUNT_UPGRADE_COST, //drop ,1
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAccountUpgradeCost")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAccountUpgradeCost()))
-            .build());
-    //    CREATE_ACCOUNT_FEE, //drop ,2
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getCreateAccountFee")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getCreateAccountFee()))
-            .build());
-    //    TRANSACTION_FEE, //drop ,3
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getTransactionFee")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getTransactionFee()))
-            .build());
-    //    ASSET_ISSUE_FEE, //drop ,4
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAssetIssueFee")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAssetIssueFee()))
-            .build());
-    //    WITNESS_PAY_PER_BLOCK, //drop ,5
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getWitnessPayPerBlock")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getWitnessPayPerBlock()))
-            .build());
-    //    WITNESS_STANDBY_ALLOWANCE, //drop ,6
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getWitnessStandbyAllowance")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getWitnessStandbyAllowance()))
-            .build());
-    //    CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT, //drop ,7
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getCreateNewAccountFeeInSystemContract")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getCreateNewAccountFeeInSystemContract()))
-            .build());
-    //    CREATE_NEW_ACCOUNT_BANDWIDTH_RATE, // 1 ~ ,8
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getCreateNewAccountGasRate")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getCreateNewAccountGasRate()))
-            .build());
-    //    ALLOW_CREATION_OF_CONTRACTS, // 0 / >0 ,9
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowCreationOfContracts")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowCreationOfContracts()))
-            .build());
-    //    REMOVE_THE_POWER_OF_THE_GR,  // 1 ,10
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getRemoveThePowerOfTheGr")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getRemoveThePowerOfTheGr()))
-            .build());
-    //    ENERGY_FEE, // drop, 11
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getEnergyFee")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getEnergyFee()))
-            .build());
-    //    EXCHANGE_CREATE_FEE, // drop, 12
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getExchangeCreateFee")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getExchangeCreateFee()))
-            .build());
-    //    MAX_CPU_TIME_OF_ONE_TX, // ms, 13
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getMaxCpuTimeOfOneTx")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getMaxCpuTimeOfOneTx()))
-            .build());
-    //    ALLOW_UPDATE_ACCOUNT_NAME, // 1, 14
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowUpdateAccountName")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowUpdateAccountName()))
-            .build());
-    //    ALLOW_SAME_TOKEN_NAME, // 1, 15
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowSameTokenName")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowSameTokenName()))
-            .build());
-    //    ALLOW_DELEGATE_RESOURCE, // 0, 16
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowDelegateResource")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowDelegateResource()))
-            .build());
-    //    TOTAL_ENERGY_LIMIT, // 50,000,000,000, 17
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getTotalEnergyLimit")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getTotalEnergyLimit()))
-            .build());
-    //    ALLOW_TVM_TRANSFER_TRC10, // 1, 18
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowTvmTransferTrc10")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowTvmTransferTrc10()))
-            .build());
-    //    TOTAL_CURRENT_ENERGY_LIMIT, // 50,000,000,000, 19
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getTotalEnergyCurrentLimit")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getTotalEnergyCurrentLimit()))
-            .build());
-    //    ALLOW_MULTI_SIGN, // 1, 20
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowMultiSign")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowMultiSign()))
-            .build());
-    //    ALLOW_ADAPTIVE_ENERGY, // 1, 21
-    builder.addChainParameter(
-        Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getAllowAdaptiveEnergy")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getAllowAdaptiveEnergy()))
-            .build());
-    //other chainParameters
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-        .setKey("getTotalEnergyTargetLimit")
-        .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getTotalEnergyTargetLimit()))
-        .build());
-
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-        .setKey("getTotalEnergyAverageUsage")
-        .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getTotalEnergyAverageUsage()))
-        .build());
-
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-        .setKey("getUpdateAccountPermissionFee")
-        .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getUpdateAccountPermissionFee()))
-        .build());
-
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-        .setKey("getMultiSignFee")
-        .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getMultiSignFee()))
-        .build());
-
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getCYTTotalSupply")
-            .setValue(Long.toString(dbManager.getDynamicPropertiesStore().getTotalSupply()))
-            .build());
-
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getIncreaseSupplyAddress")
-            .setValue(Wallet.encode58Check(dbManager.getDynamicPropertiesStore().getIncreaseSupplyAddress()))
-            .build());
-
-    builder.addChainParameter(Protocol.ChainParameters.ChainParameter.newBuilder()
-            .setKey("getDecreaseSupplyAddress")
-            .setValue(Wallet.encode58Check(dbManager.getDynamicPropertiesStore().getDecreaseSupplyAddress()))
-            .build());
+    return ChainParameterSnapshot.get(dbManager.getDynamicPropertiesStore());
+  }
 
-    return builder.build();
+  public Protocol.ChainParameters getChainParametersIfChanged(long version) {
+    return ChainParameterSnapshot.getIfChanged(dbManager.getDynamicPropertiesStore(), version);
   }
 
   public static String makeUpperCamelMethod(String originName) {
@@ -943,16 +880,9 @@ public class Wallet {
       return null;
     }
 
-    List<AssetIssueCapsule> assetIssueCapsuleList =
-        dbManager.getAssetIssueStoreFinal().getAllAssetIssues();
-
     AssetIssueList.Builder builder = AssetIssueList.newBuilder();
-    assetIssueCapsuleList.stream()
-        .filter(assetIssueCapsule -> assetIssueCapsule.getOwnerAddress().equals(accountAddress))
-        .forEach(issueCapsule -> {
-          builder.addAssetIssue(issueCapsule.getInstance());
-        });
-
+    assetIssueOwnerIndex.getByOwner(accountAddress)
+        .forEach(issueCapsule -> builder.addAssetIssue(issueCapsule.getInstance()));
     return builder.build();
   }
 
@@ -1192,6 +1122,63 @@ public class Wallet {
     return blockListBuilder.build();
   }
 
+  /**
+   * Throws if [startNum, endNum) is not a range of at most node.http.blockStreamLimit blocks.
+   */
+  public void checkBlockStreamRange(long startNum, long endNum) {
+    if (startNum < 0 || endNum <= startNum || endNum - startNum > blockStreamLimit) {
+      throw new IllegalArgumentException("invalid block range [" + startNum + ", " + endNum
+          + "), at most " + blockStreamLimit + " blocks");
+    }
+  }
+
+  /**
+   * Reads blocks [startNum, endNum) one at a time and hands the stored bytes of each one to the
+   * consumer, without parsing them and without collecting a list. Stops at the first block that
+   * is not found.
+   */
+  public void streamBlockBytesByLimitNext(long startNum, long endNum,
+      Consumer<byte[]> consumer) {
+    streamBlockBytes(startNum, endNum, data -> {
+      consumer.accept(data);
+      return true;
+    });
+  }
+
+  /**
+   * Same as {@link #streamBlockBytesByLimitNext}, parsing each block right before it is handed
+   * to the consumer. Also stops at a block that does not parse, so that what was already
+   * streamed stays a well-formed prefix of the range.
+   */
+  public void streamBlocksByLimitNext(long startNum, long endNum, Consumer<Block> consumer) {
+    streamBlockBytes(startNum, endNum, data -> {
+      try {
+        consumer.accept(Block.parseFrom(data));
+        return true;
+      } catch (InvalidProtocolBufferException e) {
+        logger.warn("Stop streaming blocks at a bad block: {}", e.getMessage());
+        return false;
+      }
+    });
+  }
+
+  private void streamBlockBytes(long startNum, long endNum, Predicate<byte[]> consumer) {
+    checkBlockStreamRange(startNum, endNum);
+    endNum = Math.min(endNum, dbManager.getHeadBlockNum() + 1);
+    for (long num = startNum; num < endNum; num++) {
+      byte[] data;
+      try {
+        BlockId blockId = dbManager.getBlockIdByNum(num);
+        data = dbManager.getBlockStore().getRevokingDB().getUnchecked(blockId.getBytes());
+      } catch (StoreException e) {
+        break;
+      }
+      if (ArrayUtils.isEmpty(data) || !consumer.test(data)) {
+        break;
+      }
+    }
+  }
+
   public Transaction getTransactionById(ByteString transactionId) {
     if (Objects.isNull(transactionId)) {
       return null;
@@ -1224,6 +1211,27 @@ public class Wallet {
     return null;
   }
 
+  /*
+  input
+  transactionIds: at most TRANSACTIONS_COUNT_LIMIT_MAX
+  return
+  one info per id in the same order, an unknown id gives an empty info
+   */
+  public TransactionInfoList getTransactionInfoByIds(List<ByteString> transactionIds) {
+    if (CollectionUtils.isEmpty(transactionIds)
+        || transactionIds.size() > TRANSACTIONS_COUNT_LIMIT_MAX) {
+      return null;
+    }
+    List<byte[]> keys = new ArrayList<>(transactionIds.size());
+    transactionIds.forEach(id -> keys.add(id.toByteArray()));
+
+    TransactionInfoList.Builder builder = TransactionInfoList.newBuilder();
+    getEach(dbManager.getTransactionHistoryStore(), keys).forEach(infoCapsule ->
+        builder.addTransactionInfo(infoCapsule == null
+            ? TransactionInfo.getDefaultInstance() : infoCapsule.getInstance()));
+    return builder.build();
+  }
+
   public Proposal getProposalById(ByteString proposalId) {
     if (Objects.isNull(proposalId)) {
       return null;
@@ -1306,25 +1314,7 @@ public class Wallet {
       if (!Args.getInstance().isSupportConstant()) {
         throw new ContractValidateException("this node don't support constant");
       }
-      DepositImpl deposit = DepositImpl.createRoot(dbManager);
-
-      Block headBlock;
-      List<BlockCapsule> blockCapsuleList = dbManager.getBlockStore().getBlockByLatestNum(1);
-      if (CollectionUtils.isEmpty(blockCapsuleList)) {
-        throw new HeaderNotFound("latest block not found");
-      } else {
-        headBlock = blockCapsuleList.get(0).getInstance();
-      }
-
-      Runtime runtime = new RuntimeImpl(trxCap.getInstance(), new BlockCapsule(headBlock), deposit,
-          new ProgramInvokeFactoryImpl(), true);
-      VMConfig.initVmHardFork();
-      VMConfig.initAllowTvmTransferTrc10(
-          dbManager.getDynamicPropertiesStore().getAllowTvmTransferTrc10());
-      VMConfig.initAllowMultiSign(dbManager.getDynamicPropertiesStore().getAllowMultiSign());
-      runtime.execute();
-      runtime.go();
-      runtime.finalization();
+      Runtime runtime = constantCallExecutor.call(trxCap);
       // TODO exception
       if (runtime.getResult().getException() != null) {
         RuntimeException e = runtime.getResult().getException();
@@ -1436,15 +1426,11 @@ public class Wallet {
     end = end > latestProposalNum ? latestProposalNum : end;
     ProposalList.Builder builder = ProposalList.newBuilder();
 
-    ImmutableList<Long> rangeList = ContiguousSet
-        .create(Range.openClosed(offset, end), DiscreteDomain.longs()).asList();
-    rangeList.stream().map(ProposalCapsule::calculateDbKey).map(key -> {
-      try {
-        return dbManager.getProposalStore().get(key);
-      } catch (Exception ex) {
-        return null;
-      }
-    }).filter(Objects::nonNull)
+    byte[] lastKey = ProposalCapsule.calculateDbKey(end);
+    seek(dbManager.getProposalStore(), ProposalCapsule.calculateDbKey(offset + 1), end - offset,
+        ProposalCapsule::new, ProposalCapsule::createDbKey).stream()
+        .filter(proposalCapsule -> UnsignedBytes.lexicographicalComparator()
+            .compare(proposalCapsule.createDbKey(), lastKey) <= 0)
         .forEach(proposalCapsule -> builder.addProposals(proposalCapsule.getInstance()));
     return builder.build();
   }
@@ -1464,17 +1450,153 @@ public class Wallet {
     end = end > latestExchangeNum ? latestExchangeNum : end;
 
     ExchangeList.Builder builder = ExchangeList.newBuilder();
-    ImmutableList<Long> rangeList = ContiguousSet
-        .create(Range.openClosed(offset, end), DiscreteDomain.longs()).asList();
-    rangeList.stream().map(ExchangeCapsule::calculateDbKey).map(key -> {
-      try {
-        return dbManager.getExchangeStoreFinal().get(key);
-      } catch (Exception ex) {
-        return null;
-      }
-    }).filter(Objects::nonNull)
+    byte[] lastKey = ExchangeCapsule.calculateDbKey(end);
+    seek(dbManager.getExchangeStoreFinal(), ExchangeCapsule.calculateDbKey(offset + 1),
+        end - offset, ExchangeCapsule::new, ExchangeCapsule::createDbKey).stream()
+        .filter(exchangeCapsule -> UnsignedBytes.lexicographicalComparator()
+            .compare(exchangeCapsule.createDbKey(), lastKey) <= 0)
         .forEach(exchangeCapsule -> builder.addExchanges(exchangeCapsule.getInstance()));
     return builder.build();
 
   }
+
+  /*
+  input
+  cursor: empty for the first page, next_cursor of the previous page otherwise
+  return
+  at most limit entries after the cursor, next_cursor is empty on the last page
+   */
+  public WitnessList getWitnessListByCursor(ByteString cursor, long limit) {
+    if (limit <= 0) {
+      return null;
+    }
+    limit = limit > WITNESS_COUNT_LIMIT_MAX ? WITNESS_COUNT_LIMIT_MAX : limit;
+    WitnessList.Builder builder = WitnessList.newBuilder();
+    ByteString nextCursor = scanByCursor(dbManager.getWitnessStore(), CURSOR_WITNESS, cursor,
+        limit, WitnessCapsule::new, WitnessCapsule::createDbKey,
+        witnessCapsule -> builder.addWitnesses(witnessCapsule.getInstance()));
+    if (nextCursor == null) {
+      return null;
+    }
+    return builder.setNextCursor(nextCursor).build();
+  }
+
+  public ProposalList getProposalListByCursor(ByteString cursor, long limit) {
+    if (limit <= 0) {
+      return null;
+    }
+    limit = limit > PROPOSAL_COUNT_LIMIT_MAX ? PROPOSAL_COUNT_LIMIT_MAX : limit;
+    ProposalList.Builder builder = ProposalList.newBuilder();
+    ByteString nextCursor = scanByCursor(dbManager.getProposalStore(), CURSOR_PROPOSAL, cursor,
+        limit, ProposalCapsule::new, ProposalCapsule::createDbKey,
+        proposalCapsule -> builder.addProposals(proposalCapsule.getInstance()));
+    if (nextCursor == null) {
+      return null;
+    }
+    return builder.setNextCursor(nextCursor).build();
+  }
+
+  public ExchangeList getExchangeListByCursor(ByteString cursor, long limit) {
+    if (limit <= 0) {
+      return null;
+    }
+    limit = limit > EXCHANGE_COUNT_LIMIT_MAX ? EXCHANGE_COUNT_LIMIT_MAX : limit;
+    byte kind = dbManager.getDynamicPropertiesStore().getAllowSameTokenName() == 0
+        ? CURSOR_EXCHANGE : CURSOR_EXCHANGE_V2;
+    ExchangeList.Builder builder = ExchangeList.newBuilder();
+    ByteString nextCursor = scanByCursor(dbManager.getExchangeStoreFinal(), kind, cursor,
+        limit, ExchangeCapsule::new, ExchangeCapsule::createDbKey,
+        exchangeCapsule -> builder.addExchanges(exchangeCapsule.getInstance()));
+    if (nextCursor == null) {
+      return null;
+    }
+    return builder.setNextCursor(nextCursor).build();
+  }
+
+  public AssetIssueList getAssetIssueListByCursor(ByteString cursor, long limit) {
+    if (limit <= 0) {
+      return null;
+    }
+    limit = limit > ASSET_ISSUE_COUNT_LIMIT_MAX ? ASSET_ISSUE_COUNT_LIMIT_MAX : limit;
+    byte kind = dbManager.getDynamicPropertiesStore().getAllowSameTokenName() == 0
+        ? CURSOR_ASSET_ISSUE : CURSOR_ASSET_ISSUE_V2;
+    AssetIssueList.Builder builder = AssetIssueList.newBuilder();
+    Function<AssetIssueCapsule, byte[]> keyOf = kind == CURSOR_ASSET_ISSUE
+        ? AssetIssueCapsule::createDbKey : AssetIssueCapsule::createDbV2Key;
+    ByteString nextCursor = scanByCursor(dbManager.getAssetIssueStoreFinal(), kind, cursor,
+        limit, AssetIssueCapsule::new, keyOf,
+        issueCapsule -> builder.addAssetIssue(issueCapsule.getInstance()));
+    if (nextCursor == null) {
+      return null;
+    }
+    return builder.setNextCursor(nextCursor).build();
+  }
+
+  /**
+   * Reads a group of unrelated keys from one store, one point read per key. The result lines up
+   * with keys and holds null for a missing or unreadable entry. The revoking store has no
+   * multi-key read, so only contiguous keys can be batched, see {@link #seek}.
+   */
+  private static <T extends ProtoCapsule> List<T> getEach(TronStoreWithRevoking<T> store,
+      List<byte[]> keys) {
+    List<T> values = new ArrayList<>(keys.size());
+    for (byte[] key : keys) {
+      values.add(store.getUnchecked(key));
+    }
+    return values;
+  }
+
+  /**
+   * Reads the values of the first count keys at or after startKey with one seek on the revoking
+   * store, instead of one point read per key, and returns them in key order. The revoking view
+   * returns those values unordered and without their keys, so the key of every value is
+   * derived with keyOf.
+   */
+  private static <T extends ProtoCapsule> List<T> seek(TronStoreWithRevoking<T> store,
+      byte[] startKey, long count, Function<byte[], T> decoder, Function<T, byte[]> keyOf) {
+    Comparator<byte[]> order = UnsignedBytes.lexicographicalComparator();
+    return store.getRevokingDB().getValuesNext(startKey, count).stream()
+        .map(decoder)
+        .filter(capsule -> capsule.getInstance() != null)
+        .filter(capsule -> order.compare(keyOf.apply(capsule), startKey) >= 0)
+        .sorted((a, b) -> order.compare(keyOf.apply(a), keyOf.apply(b)))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Hands at most limit entries after the cursor to the consumer, in key order, and returns the
+   * cursor of the next page. The cursor is the kind byte followed by the last key returned; it
+   * is empty when the store is exhausted. Returns null for a cursor issued by another store.
+   *
+   * <p>Each page is one {@link #seek} from the cursor that reads limit + 1 values, so neither
+   * time nor memory depends on the size of the store.</p>
+   */
+  private <T extends ProtoCapsule> ByteString scanByCursor(TronStoreWithRevoking<T> store,
+      byte kind, ByteString cursor, long limit, Function<byte[], T> decoder,
+      Function<T, byte[]> keyOf, Consumer<T> consumer) {
+    if (cursor != null && !cursor.isEmpty() && cursor.byteAt(0) != kind) {
+      return null;
+    }
+    byte[] lastKey = cursor == null || cursor.isEmpty() ? null : cursor.substring(1).toByteArray();
+    // the smallest key after the last one returned
+    byte[] startKey = lastKey == null ? new byte[0] : Arrays.copyOf(lastKey, lastKey.length + 1);
+
+    List<T> page = seek(store, startKey, limit + 1, decoder, keyOf);
+    if (page.size() <= limit) {
+      page.forEach(consumer);
+      return ByteString.EMPTY;
+    }
+    page.subList(0, (int) limit).forEach(consumer);
+    return ByteString.copyFrom(new byte[]{kind})
+        .concat(ByteString.copyFrom(keyOf.apply(page.get((int) limit - 1))));
+  }
+
+  // shared by all wallets, created on the first batch broadcast
+  private static class ValidateSignServiceHolder {
+
+    private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+        Math.max(1, Args.getInstance().getValidateSignThreadNum()),
+        new ThreadFactoryBuilder().setNameFormat("broadcast-validate-sign-%d").setDaemon(true)
+            .build());
+  }
 }